@@ -0,0 +1,172 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.samples.petclinic.api.ApiQueries.OwnerPage;
+import org.springframework.samples.petclinic.api.ApiQueries.OwnerPosition;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Version 1 of the JSON API for owners, pets and visits. Every resource accepts
+ * {@code fields} (and {@code fields[<resource>]} for included resources) to select the
+ * returned fields, and owners and pets accept {@code include} to embed their pets and
+ * visits, for instance <code>/api/v1/owners?lastName=Dav&amp;fields=lastName&amp;include=pets</code>.
+ * Only the selected fields are queried, with one query per resource. The owners are
+ * paged by last name and id, each page linking to the next one with the position of its
+ * last owner, so that a page costs the same at any depth. Unknown fields and includes
+ * are answered with a 400, unknown owners and pets with a 404.
+ */
+@Controller
+@RequestMapping(value = "/api/v1", produces = MediaType.APPLICATION_JSON_VALUE)
+class ApiController {
+
+	private static final int MAX_PAGE_SIZE = 100;
+
+	private static final Map<String, List<ApiResource>> OWNER_INCLUDES = Map.of("pets", List.of(ApiResource.PETS),
+			"pets.visits", List.of(ApiResource.PETS, ApiResource.VISITS));
+
+	private static final Map<String, List<ApiResource>> PET_INCLUDES = Map.of("visits",
+			List.of(ApiResource.VISITS));
+
+	private final ApiQueries queries;
+
+	ApiController(ApiQueries queries) {
+		this.queries = queries;
+	}
+
+	@GetMapping("/owners")
+	public @ResponseBody ApiDocument listOwners(@RequestParam(defaultValue = "") String lastName,
+			@RequestParam(defaultValue = "") String afterLastName, @RequestParam(required = false) Integer afterId,
+			@RequestParam(defaultValue = "20") int size, @RequestParam Map<String, String> parameters) {
+		ApiSelection selection = ApiSelection.parse(ApiResource.OWNERS, OWNER_INCLUDES, parameters);
+		int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+		OwnerPosition after = (afterId != null) ? new OwnerPosition(afterLastName, afterId) : null;
+		OwnerPage page = this.queries.findOwners(selection.getFields(ApiResource.OWNERS), lastName, after, pageSize);
+		includePets(page.owners(), selection);
+		String next = (page.next() != null) ? nextLink(parameters, page.next()) : null;
+		return new ApiDocument(page.owners(), new ApiDocument.Page(pageSize, page.next() != null, next));
+	}
+
+	@GetMapping("/owners/{ownerId}")
+	public @ResponseBody ApiDocument showOwner(@PathVariable("ownerId") int ownerId,
+			@RequestParam Map<String, String> parameters) {
+		ApiSelection selection = ApiSelection.parse(ApiResource.OWNERS, OWNER_INCLUDES, parameters);
+		Map<String, Object> owner = this.queries.findOwner(selection.getFields(ApiResource.OWNERS), ownerId)
+			.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No owner with id " + ownerId));
+		includePets(List.of(owner), selection);
+		return new ApiDocument(owner);
+	}
+
+	@GetMapping("/owners/{ownerId}/pets")
+	public @ResponseBody ApiDocument listPets(@PathVariable("ownerId") int ownerId,
+			@RequestParam Map<String, String> parameters) {
+		ApiSelection selection = ApiSelection.parse(ApiResource.PETS, PET_INCLUDES, parameters);
+		List<Map<String, Object>> pets = this.queries
+			.findPetsByOwner(selection.getFields(ApiResource.PETS), List.of(ownerId))
+			.getOrDefault(ownerId, List.of());
+		// only an empty list leaves open whether the owner exists
+		if (pets.isEmpty() && !this.queries.existsOwner(ownerId)) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No owner with id " + ownerId);
+		}
+		includeVisits(pets, selection);
+		return new ApiDocument(pets);
+	}
+
+	@GetMapping("/owners/{ownerId}/pets/{petId}/visits")
+	public @ResponseBody ApiDocument listVisits(@PathVariable("ownerId") int ownerId,
+			@PathVariable("petId") int petId, @RequestParam Map<String, String> parameters) {
+		ApiSelection selection = ApiSelection.parse(ApiResource.VISITS, Map.of(), parameters);
+		List<Map<String, Object>> visits = this.queries.findVisitsOfPet(selection.getFields(ApiResource.VISITS),
+				ownerId, petId);
+		if (visits.isEmpty() && !this.queries.existsPetOfOwner(ownerId, petId)) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+					"No pet with id " + petId + " for owner with id " + ownerId);
+		}
+		return new ApiDocument(visits);
+	}
+
+	@ExceptionHandler(InvalidSelectionException.class)
+	public @ResponseBody ProblemDetail handleInvalidSelection(InvalidSelectionException ex) {
+		return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
+	}
+
+	private void includePets(List<Map<String, Object>> owners, ApiSelection selection) {
+		if (!selection.includes(ApiResource.PETS)) {
+			return;
+		}
+		Map<Integer, List<Map<String, Object>>> pets = this.queries
+			.findPetsByOwner(selection.getFields(ApiResource.PETS), ids(owners));
+		List<Map<String, Object>> allPets = new ArrayList<>();
+		for (Map<String, Object> owner : owners) {
+			List<Map<String, Object>> ownerPets = pets.getOrDefault((Integer) owner.get("id"), List.of());
+			owner.put("pets", ownerPets);
+			allPets.addAll(ownerPets);
+		}
+		includeVisits(allPets, selection);
+	}
+
+	private void includeVisits(List<Map<String, Object>> pets, ApiSelection selection) {
+		if (!selection.includes(ApiResource.VISITS)) {
+			return;
+		}
+		Map<Integer, List<Map<String, Object>>> visits = this.queries
+			.findVisitsByPet(selection.getFields(ApiResource.VISITS), ids(pets));
+		for (Map<String, Object> pet : pets) {
+			pet.put("visits", visits.getOrDefault((Integer) pet.get("id"), List.of()));
+		}
+	}
+
+	/**
+	 * The link to the owners after the given one, keeping the other parameters.
+	 */
+	private static String nextLink(Map<String, String> parameters, OwnerPosition last) {
+		ServletUriComponentsBuilder link = ServletUriComponentsBuilder.fromCurrentRequestUri();
+		parameters.forEach((name, value) -> {
+			if (!name.equals("afterLastName") && !name.equals("afterId")) {
+				link.queryParam(name, value);
+			}
+		});
+		return link.queryParam("afterLastName", last.lastName())
+			.queryParam("afterId", last.id())
+			.build()
+			.encode()
+			.toUriString();
+	}
+
+	private static List<Integer> ids(List<Map<String, Object>> rows) {
+		List<Integer> ids = new ArrayList<>(rows.size());
+		for (Map<String, Object> row : rows) {
+			ids.add((Integer) row.get("id"));
+		}
+		return ids;
+	}
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The body of an API response: a resource or a list of resources, with the position in
+ * the list for paged lists.
+ *
+ * @param data the resource or resources
+ * @param page the page of a paged list, {@code null} otherwise
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record ApiDocument(Object data, Page page) {
+
+	ApiDocument(Object data) {
+		this(data, null);
+	}
+
+	/**
+	 * A page of a list.
+	 *
+	 * @param size the maximum number of resources on a page
+	 * @param hasNext whether there are further pages
+	 * @param next the link to the next page, continuing after the last resource of this
+	 * one, {@code null} on the last page
+	 */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	record Page(int size, boolean hasNext, String next) {
+	}
+
+}
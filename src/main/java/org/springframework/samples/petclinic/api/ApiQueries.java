@@ -0,0 +1,244 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.data.jpa.repository.query.EscapeCharacter;
+import org.springframework.samples.petclinic.api.ApiResource.Field;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Reads the resources of the API as rows of the requested fields only. Each query
+ * selects the id and the expressions of the requested fields, joining only what those
+ * fields need, so no entity is ever loaded. Related resources are read with one query
+ * per resource for all their parents.
+ */
+@Repository
+@Transactional(readOnly = true)
+class ApiQueries {
+
+	private final EntityManager entityManager;
+
+	ApiQueries(EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	/**
+	 * Find a page of owners by the start of their last name, seeking past the given
+	 * (last name, id) position like
+	 * {@link org.springframework.samples.petclinic.owner.OwnerRepository#scrollByLastNameStartingWith}
+	 * so that no skipped owners are scanned.
+	 * @param fields the fields to read besides the id
+	 * @param lastName the start of the last name, matched literally
+	 * @param after the position to continue after, {@code null} for the first page
+	 * @param size the maximum number of owners
+	 * @return the owners ordered by last name and id
+	 */
+	OwnerPage findOwners(Set<String> fields, String lastName, OwnerPosition after, int size) {
+		String where = "owner.lastName LIKE :lastName ESCAPE :escape";
+		if (after != null) {
+			where += " AND (owner.lastName > :afterLastName OR (owner.lastName = :afterLastName AND owner.id > :afterId))";
+		}
+		// the last name, read last, is the position of the owner
+		TypedQuery<Tuple> query = query(ApiResource.OWNERS, fields, "owner.lastName", where,
+				"owner.lastName, owner.id");
+		// escaped like the derived and the @Query methods of the repositories
+		query.setParameter("lastName", EscapeCharacter.DEFAULT.escape(lastName) + "%")
+			.setParameter("escape", EscapeCharacter.DEFAULT.getEscapeCharacter())
+			.setMaxResults(size + 1);
+		if (after != null) {
+			query.setParameter("afterLastName", after.lastName()).setParameter("afterId", after.id());
+		}
+		List<Tuple> tuples = query.getResultList();
+		// one more owner than the page holds tells whether there is a next page
+		if (tuples.size() <= size) {
+			return new OwnerPage(rows(tuples, fields), null);
+		}
+		Tuple last = tuples.get(size - 1);
+		return new OwnerPage(rows(tuples.subList(0, size), fields),
+				new OwnerPosition((String) last.get(fields.size() + 1), (Integer) last.get(0)));
+	}
+
+	/**
+	 * Find an owner by id.
+	 * @param fields the fields to read besides the id
+	 * @param ownerId the id of the owner
+	 * @return the owner, if found
+	 */
+	Optional<Map<String, Object>> findOwner(Set<String> fields, int ownerId) {
+		TypedQuery<Tuple> query = query(ApiResource.OWNERS, fields, null, "owner.id = :ownerId", "owner.id");
+		query.setParameter("ownerId", ownerId);
+		return rows(query.getResultList(), fields).stream().findFirst();
+	}
+
+	/**
+	 * Check whether an owner exists.
+	 * @param ownerId the id of the owner
+	 * @return {@code true} if the owner exists
+	 */
+	boolean existsOwner(int ownerId) {
+		return this.entityManager
+			.createQuery("SELECT COUNT(owner) > 0 FROM Owner owner WHERE owner.id = :ownerId", Boolean.class)
+			.setParameter("ownerId", ownerId)
+			.getSingleResult();
+	}
+
+	/**
+	 * Check whether a pet belongs to an owner.
+	 * @param ownerId the id of the owner
+	 * @param petId the id of the pet
+	 * @return {@code true} if the owner has a pet with the given id
+	 */
+	boolean existsPetOfOwner(int ownerId, int petId) {
+		return this.entityManager
+			.createQuery("SELECT COUNT(pet) > 0 FROM Pet pet WHERE pet.id = :petId AND pet.ownerId = :ownerId",
+					Boolean.class)
+			.setParameter("petId", petId)
+			.setParameter("ownerId", ownerId)
+			.getSingleResult();
+	}
+
+	/**
+	 * Find the pets of the given owners, ordered by name.
+	 * @param fields the fields to read besides the id
+	 * @param ownerIds the ids of the owners
+	 * @return the pets keyed by the id of their owner; owners without pets are left out
+	 */
+	Map<Integer, List<Map<String, Object>>> findPetsByOwner(Set<String> fields, Collection<Integer> ownerIds) {
+		if (ownerIds.isEmpty()) {
+			return Map.of();
+		}
+		TypedQuery<Tuple> query = query(ApiResource.PETS, fields, "pet.ownerId", "pet.ownerId IN :ownerIds",
+				"pet.name, pet.id");
+		query.setParameter("ownerIds", ownerIds);
+		return rowsByParent(query.getResultList(), fields);
+	}
+
+	/**
+	 * Find the visits of the given pets, most recent first.
+	 * @param fields the fields to read besides the id
+	 * @param petIds the ids of the pets
+	 * @return the visits keyed by the id of their pet; pets without visits are left out
+	 */
+	Map<Integer, List<Map<String, Object>>> findVisitsByPet(Set<String> fields, Collection<Integer> petIds) {
+		if (petIds.isEmpty()) {
+			return Map.of();
+		}
+		TypedQuery<Tuple> query = query(ApiResource.VISITS, fields, "visit.pet.id", "visit.pet.id IN :petIds",
+				"visit.date DESC, visit.id DESC");
+		query.setParameter("petIds", petIds);
+		return rowsByParent(query.getResultList(), fields);
+	}
+
+	/**
+	 * Find the visits of a pet of an owner, most recent first.
+	 * @param fields the fields to read besides the id
+	 * @param ownerId the id of the owner
+	 * @param petId the id of the pet
+	 * @return the visits; none if the pet does not belong to the owner
+	 */
+	List<Map<String, Object>> findVisitsOfPet(Set<String> fields, int ownerId, int petId) {
+		TypedQuery<Tuple> query = query(ApiResource.VISITS, fields, null,
+				"visit.pet.id = :petId AND visit.pet.ownerId = :ownerId", "visit.date DESC, visit.id DESC");
+		query.setParameter("petId", petId).setParameter("ownerId", ownerId);
+		return rows(query.getResultList(), fields);
+	}
+
+	/**
+	 * Build the query of the id, the given fields and, last, the extra expression, such
+	 * as the id of the parent.
+	 */
+	private TypedQuery<Tuple> query(ApiResource resource, Set<String> fields, String extra, String where,
+			String orderBy) {
+		StringBuilder select = new StringBuilder("SELECT ").append(resource.getId());
+		Set<String> joins = new LinkedHashSet<>();
+		for (String name : fields) {
+			Field field = resource.getField(name);
+			select.append(", ").append(field.expression());
+			if (field.join() != null) {
+				joins.add(field.join());
+			}
+		}
+		if (extra != null) {
+			select.append(", ").append(extra);
+		}
+		select.append(" FROM ").append(resource.getFrom());
+		joins.forEach(join -> select.append(' ').append(join));
+		select.append(" WHERE ").append(where).append(" ORDER BY ").append(orderBy);
+		return this.entityManager.createQuery(select.toString(), Tuple.class);
+	}
+
+	private static List<Map<String, Object>> rows(List<Tuple> tuples, Set<String> fields) {
+		List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+		for (Tuple tuple : tuples) {
+			rows.add(row(tuple, fields));
+		}
+		return rows;
+	}
+
+	private static Map<Integer, List<Map<String, Object>>> rowsByParent(List<Tuple> tuples, Set<String> fields) {
+		Map<Integer, List<Map<String, Object>>> rows = new HashMap<>();
+		for (Tuple tuple : tuples) {
+			Integer parentId = (Integer) tuple.get(fields.size() + 1);
+			rows.computeIfAbsent(parentId, id -> new ArrayList<>()).add(row(tuple, fields));
+		}
+		return rows;
+	}
+
+	private static Map<String, Object> row(Tuple tuple, Set<String> fields) {
+		Map<String, Object> row = new LinkedHashMap<>();
+		row.put("id", tuple.get(0));
+		int index = 1;
+		for (String name : fields) {
+			row.put(name, tuple.get(index++));
+		}
+		return row;
+	}
+
+	/**
+	 * The position of an owner in the list ordered by last name and id.
+	 *
+	 * @param lastName the last name of the owner
+	 * @param id the id of the owner
+	 */
+	record OwnerPosition(String lastName, int id) {
+	}
+
+	/**
+	 * A page of owners.
+	 *
+	 * @param owners the owners
+	 * @param next the position of the last owner if more owners follow, {@code null}
+	 * otherwise
+	 */
+	record OwnerPage(List<Map<String, Object>> owners, OwnerPosition next) {
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The resources of the API and the fields each of them exposes, mapped to the JPQL
+ * expressions they are selected with. The id of a resource is always returned.
+ */
+enum ApiResource {
+
+	OWNERS("owners", "Owner owner", "owner.id",
+			fields().field("firstName", "owner.firstName")
+				.field("lastName", "owner.lastName")
+				.field("address", "owner.address")
+				.field("city", "owner.city")
+				.field("telephone", "owner.telephone")
+				.field("version", "owner.version")),
+
+	PETS("pets", "Pet pet", "pet.id",
+			fields().field("name", "pet.name")
+				.field("birthDate", "pet.birthDate")
+				.field("type", "type.name", "LEFT JOIN pet.type type")),
+
+	VISITS("visits", "Visit visit", "visit.id",
+			fields().field("date", "visit.date").field("description", "visit.description"));
+
+	private final String name;
+
+	private final String from;
+
+	private final String id;
+
+	private final Map<String, Field> fields;
+
+	ApiResource(String name, String from, String id, Fields fields) {
+		this.name = name;
+		this.from = from;
+		this.id = id;
+		this.fields = fields.fields;
+	}
+
+	/**
+	 * Return the name of the resource, as used by the {@code fields[...]} parameters.
+	 */
+	String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Return the entity and alias to select from.
+	 */
+	String getFrom() {
+		return this.from;
+	}
+
+	/**
+	 * Return the expression of the id.
+	 */
+	String getId() {
+		return this.id;
+	}
+
+	/**
+	 * Return the fields that can be requested.
+	 */
+	Set<String> getFieldNames() {
+		return this.fields.keySet();
+	}
+
+	/**
+	 * Return the field with the given name, or {@code null} if there is none.
+	 */
+	Field getField(String name) {
+		return this.fields.get(name);
+	}
+
+	private static Fields fields() {
+		return new Fields();
+	}
+
+	/**
+	 * A field: the expression it is selected with and the join it needs, if any.
+	 */
+	record Field(String expression, String join) {
+	}
+
+	private static final class Fields {
+
+		private final Map<String, Field> fields = new LinkedHashMap<>();
+
+		Fields field(String name, String expression) {
+			return field(name, expression, null);
+		}
+
+		Fields field(String name, String expression, String join) {
+			this.fields.put(name, new Field(expression, join));
+			return this;
+		}
+
+	}
+
+}
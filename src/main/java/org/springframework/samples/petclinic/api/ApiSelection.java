@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * The fields and related resources requested for a resource, as given by the
+ * {@code fields}, {@code fields[<resource>]} and {@code include} parameters, for instance
+ * <code>/api/v1/owners/6?fields=lastName&amp;include=pets.visits&amp;fields[visits]=date</code>.
+ * Resources without a fieldset get all their fields.
+ */
+final class ApiSelection {
+
+	private final Map<ApiResource, Set<String>> fields;
+
+	private final Set<ApiResource> included;
+
+	private ApiSelection(Map<ApiResource, Set<String>> fields, Set<ApiResource> included) {
+		this.fields = fields;
+		this.included = included;
+	}
+
+	/**
+	 * Parse the selection of the request parameters.
+	 * @param primary the requested resource
+	 * @param includes the paths that can be included, with the resources each includes
+	 * @param parameters the request parameters
+	 * @return the selection
+	 * @throws InvalidSelectionException if a field or include is unknown
+	 */
+	static ApiSelection parse(ApiResource primary, Map<String, List<ApiResource>> includes,
+			Map<String, String> parameters) {
+		Set<ApiResource> included = EnumSet.noneOf(ApiResource.class);
+		for (String path : StringUtils.commaDelimitedListToSet(parameters.get("include"))) {
+			List<ApiResource> resources = includes.get(path.trim());
+			if (resources == null) {
+				throw new InvalidSelectionException(
+						"Cannot include '" + path + "' in " + primary.getName() + ", expected one of " + includes.keySet());
+			}
+			included.addAll(resources);
+		}
+		Map<ApiResource, Set<String>> fields = new EnumMap<>(ApiResource.class);
+		fields.put(primary, fieldset(primary, parameters.get("fields")));
+		for (ApiResource resource : included) {
+			fields.put(resource, fieldset(resource, parameters.get("fields[" + resource.getName() + "]")));
+		}
+		return new ApiSelection(fields, included);
+	}
+
+	private static Set<String> fieldset(ApiResource resource, String requested) {
+		if (!StringUtils.hasText(requested)) {
+			return resource.getFieldNames();
+		}
+		Set<String> fields = new LinkedHashSet<>();
+		for (String field : StringUtils.commaDelimitedListToSet(requested)) {
+			String name = field.trim();
+			if (resource.getField(name) == null && !"id".equals(name)) {
+				throw new InvalidSelectionException("Unknown field '" + name + "' of " + resource.getName()
+						+ ", expected one of " + resource.getFieldNames());
+			}
+			fields.add(name);
+		}
+		// the id is always returned
+		fields.remove("id");
+		return Collections.unmodifiableSet(fields);
+	}
+
+	/**
+	 * Return the fields to return of the given resource, besides its id.
+	 */
+	Set<String> getFields(ApiResource resource) {
+		return this.fields.getOrDefault(resource, Set.of());
+	}
+
+	/**
+	 * Return whether the given related resource is to be included.
+	 */
+	boolean includes(ApiResource resource) {
+		return this.included.contains(resource);
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Bulk import and export of owners over HTTP. Both directions stream: an import reads the
+ * request body as it arrives, for instance
+ * <code>curl -H 'Content-Type: text/csv' --data-binary @owners.csv localhost:8080/owners/import</code>,
+ * and an export writes owners to the response as they are read from the database.
+ */
+@Controller
+class BulkController {
+
+	private final BulkImporter importer;
+
+	private final BulkExporter exporter;
+
+	BulkController(BulkImporter importer, BulkExporter exporter) {
+		this.importer = importer;
+		this.exporter = exporter;
+	}
+
+	@PostMapping(value = "/owners/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, "text/csv" })
+	public @ResponseBody ImportReport importOwners(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+			InputStream body) throws IOException {
+		return this.importer.importOwners(body, BulkFormat.forMediaType(contentType));
+	}
+
+	@GetMapping("/owners/export")
+	public ResponseEntity<StreamingResponseBody> exportOwners(@RequestParam(defaultValue = "ndjson") String format) {
+		BulkFormat bulkFormat = BulkFormat.forExtension(format);
+		ContentDisposition attachment = ContentDisposition.attachment()
+			.filename("owners." + bulkFormat.getExtension())
+			.build();
+		return ResponseEntity.ok()
+			.contentType(bulkFormat.getMediaType())
+			.header(HttpHeaders.CONTENT_DISPOSITION, attachment.toString())
+			.body(output -> this.exporter.exportOwners(output, bulkFormat));
+	}
+
+}
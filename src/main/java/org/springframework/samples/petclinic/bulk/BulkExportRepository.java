@@ -0,0 +1,47 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.samples.petclinic.owner.Owner;
+
+import jakarta.persistence.QueryHint;
+
+/**
+ * Repository for reading all owners, pets and visits in one pass.
+ */
+interface BulkExportRepository extends Repository<Owner, Integer> {
+
+	/**
+	 * Stream all owners with their pets and visits as flat rows, ordered by owner, pet
+	 * name and visit date, fetching 500 rows per round trip. The stream
+	 * must be consumed and closed within a transaction.
+	 * @return the rows of all owners
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.bulk.ExportRow(owner.id, owner.firstName, "
+			+ "owner.lastName, owner.address, owner.city, owner.telephone, pet.id, pet.name, pet.birthDate, "
+			+ "petType.name, visit.id, visit.date, visit.description) "
+			+ "FROM Owner owner LEFT JOIN owner.pets pet LEFT JOIN pet.type petType LEFT JOIN pet.visits visit "
+			+ "ORDER BY owner.id, pet.name, pet.id, visit.date, visit.id")
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+	Stream<ExportRow> streamAll();
+
+}
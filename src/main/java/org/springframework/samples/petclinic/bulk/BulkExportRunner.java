@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exports all owners to the file given by {@code petclinic.export.file} at startup, for
+ * instance for a nightly export without starting the web server:
+ *
+ * <pre class="code">
+ * java -jar petclinic.jar --spring.main.web-application-type=none --petclinic.export.file=owners.csv
+ * </pre>
+ *
+ * The format is determined by the file extension, {@code .ndjson} or {@code .csv}.
+ */
+@Component
+@ConditionalOnProperty("petclinic.export.file")
+class BulkExportRunner implements ApplicationRunner {
+
+	private static final Log logger = LogFactory.getLog(BulkExportRunner.class);
+
+	private final BulkExporter exporter;
+
+	private final Path file;
+
+	BulkExportRunner(BulkExporter exporter, @Value("${petclinic.export.file}") Path file) {
+		this.exporter = exporter;
+		this.file = file;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		int count;
+		try (OutputStream output = Files.newOutputStream(this.file)) {
+			count = this.exporter.exportOwners(output, BulkFormat.forFilename(this.file.toString()));
+		}
+		logger.info("Exported " + count + " owners to " + this.file);
+	}
+
+}
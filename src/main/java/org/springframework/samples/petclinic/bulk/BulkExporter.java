@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.samples.petclinic.bulk.OwnerRecord.PetRecord;
+import org.springframework.samples.petclinic.bulk.OwnerRecord.VisitRecord;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Exports all owners with their pets and visits to a {@link BulkFormat bulk file}.
+ * <p>
+ * The rows are streamed from a single query with a JDBC fetch size and read as a
+ * projection, so no entities accumulate in the persistence context. Only the owner being
+ * written is held in memory, the heap used does not depend on the number of owners.
+ */
+@Component
+public class BulkExporter {
+
+	private final BulkExportRepository rows;
+
+	private final TransactionTemplate transactions;
+
+	private final ObjectMapper objectMapper;
+
+	public BulkExporter(BulkExportRepository rows, PlatformTransactionManager transactionManager,
+			ObjectMapper objectMapper) {
+		this.rows = rows;
+		this.transactions = new TransactionTemplate(transactionManager);
+		this.transactions.setReadOnly(true);
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Export all owners. The output is flushed but not closed.
+	 * @param output where to write the bulk file
+	 * @param format the format to write
+	 * @return the number of exported owners
+	 * @throws IOException if the output cannot be written
+	 */
+	public int exportOwners(OutputStream output, BulkFormat format) throws IOException {
+		try {
+			return this.transactions.execute(status -> {
+				try (Stream<ExportRow> rows = this.rows.streamAll();
+						OwnerRecordWriter writer = format.writer(output, this.objectMapper)) {
+					return write(rows.iterator(), writer);
+				}
+				catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			});
+		}
+		catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+	}
+
+	private int write(Iterator<ExportRow> rows, OwnerRecordWriter writer) throws IOException {
+		int count = 0;
+		OwnerRecord owner = null;
+		Integer ownerId = null;
+		PetRecord pet = null;
+		Integer petId = null;
+		while (rows.hasNext()) {
+			ExportRow row = rows.next();
+			if (!row.ownerId().equals(ownerId)) {
+				if (owner != null) {
+					writer.write(owner);
+					count++;
+				}
+				owner = new OwnerRecord(row.firstName(), row.lastName(), row.address(), row.city(), row.telephone(),
+						null);
+				ownerId = row.ownerId();
+				petId = null;
+			}
+			if (row.petId() != null && !row.petId().equals(petId)) {
+				pet = new PetRecord(row.petName(), row.petBirthDate(), row.petType(), null);
+				owner.pets().add(pet);
+				petId = row.petId();
+			}
+			if (row.visitId() != null) {
+				pet.visits().add(new VisitRecord(row.visitDate(), row.visitDescription()));
+			}
+		}
+		if (owner != null) {
+			writer.write(owner);
+			count++;
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The formats of bulk files.
+ */
+public enum BulkFormat {
+
+	/**
+	 * Newline-delimited JSON, one owner with its pets and visits per line.
+	 */
+	NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+
+	/**
+	 * Comma-separated values, one row per visit.
+	 */
+	CSV(new MediaType("text", "csv"), "csv");
+
+	private final MediaType mediaType;
+
+	private final String extension;
+
+	BulkFormat(MediaType mediaType, String extension) {
+		this.mediaType = mediaType;
+		this.extension = extension;
+	}
+
+	public MediaType getMediaType() {
+		return this.mediaType;
+	}
+
+	public String getExtension() {
+		return this.extension;
+	}
+
+	/**
+	 * Determine the format from the extension of a file name.
+	 * @throws IllegalArgumentException if the extension is not supported
+	 */
+	public static BulkFormat forFilename(String filename) {
+		int dot = filename.lastIndexOf('.');
+		return forExtension((dot >= 0) ? filename.substring(dot + 1) : "");
+	}
+
+	/**
+	 * Determine the format from a file extension such as {@code csv}.
+	 * @throws IllegalArgumentException if the extension is not supported
+	 */
+	public static BulkFormat forExtension(String extension) {
+		for (BulkFormat format : values()) {
+			if (format.extension.equalsIgnoreCase(extension)) {
+				return format;
+			}
+		}
+		throw new IllegalArgumentException("Unsupported bulk file extension: " + extension);
+	}
+
+	/**
+	 * Determine the format from a media type.
+	 * @throws IllegalArgumentException if the media type is not supported
+	 */
+	public static BulkFormat forMediaType(MediaType mediaType) {
+		for (BulkFormat format : values()) {
+			if (format.mediaType.isCompatibleWith(mediaType)) {
+				return format;
+			}
+		}
+		throw new IllegalArgumentException("Unsupported bulk media type: " + mediaType);
+	}
+
+	OwnerRecordReader reader(InputStream input, ObjectMapper objectMapper) {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+		return (this == NDJSON) ? new NdjsonOwnerRecordReader(reader, objectMapper) : new CsvOwnerRecordReader(reader);
+	}
+
+	OwnerRecordWriter writer(OutputStream output, ObjectMapper objectMapper) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+		return (this == NDJSON) ? new NdjsonOwnerRecordWriter(writer, objectMapper) : new CsvOwnerRecordWriter(writer);
+	}
+
+}
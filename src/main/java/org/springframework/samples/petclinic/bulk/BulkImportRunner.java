@@ -0,0 +1,69 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.samples.petclinic.bulk.ImportReport.ImportError;
+import org.springframework.stereotype.Component;
+
+/**
+ * Imports the file given by {@code petclinic.import.file} at startup, for instance to
+ * onboard a clinic without starting the web server:
+ *
+ * <pre class="code">
+ * java -jar petclinic.jar --spring.main.web-application-type=none --petclinic.import.file=owners.ndjson
+ * </pre>
+ *
+ * The format is determined by the file extension, {@code .ndjson} or {@code .csv}.
+ */
+@Component
+@ConditionalOnProperty("petclinic.import.file")
+class BulkImportRunner implements ApplicationRunner {
+
+	private static final Log logger = LogFactory.getLog(BulkImportRunner.class);
+
+	private final BulkImporter importer;
+
+	private final Path file;
+
+	BulkImportRunner(BulkImporter importer, @Value("${petclinic.import.file}") Path file) {
+		this.importer = importer;
+		this.file = file;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		logger.info("Importing " + this.file);
+		ImportReport report;
+		try (InputStream input = Files.newInputStream(this.file)) {
+			report = this.importer.importOwners(input, BulkFormat.forFilename(this.file.toString()));
+		}
+		for (ImportError error : report.getErrors()) {
+			logger.warn(this.file + ":" + error.line() + ": " + error.message());
+		}
+		logger.info("Import of " + this.file + " done: " + report);
+	}
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.samples.petclinic.bulk.OwnerRecord.PetRecord;
+import org.springframework.samples.petclinic.bulk.OwnerRecord.VisitRecord;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetType;
+import org.springframework.samples.petclinic.owner.Visit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ValidationException;
+import jakarta.validation.Validator;
+
+/**
+ * Imports owners with their pets and visits from a {@link BulkFormat bulk file}.
+ * <p>
+ * The file is streamed, and owners are persisted in chunks of
+ * {@code petclinic.import.chunk-size}, one transaction per chunk. The persistence
+ * context is flushed, so that the inserts go out in JDBC batches, and cleared after
+ * every chunk. If a chunk fails, while flushing or on commit, its owners are retried
+ * one by one so that only the offending records are rejected. The cached owner counts
+ * are discarded after every committed chunk.
+ */
+@Component
+public class BulkImporter {
+
+	private final OwnerRepository owners;
+
+	private final EntityManager entityManager;
+
+	private final TransactionTemplate transactions;
+
+	private final ObjectMapper objectMapper;
+
+	private final Validator validator;
+
+	private final ObjectProvider<CacheManager> cacheManager;
+
+	private final int chunkSize;
+
+	public BulkImporter(OwnerRepository owners, EntityManager entityManager,
+			PlatformTransactionManager transactionManager, ObjectMapper objectMapper, Validator validator,
+			ObjectProvider<CacheManager> cacheManager, @Value("${petclinic.import.chunk-size:500}") int chunkSize) {
+		this.owners = owners;
+		this.entityManager = entityManager;
+		this.transactions = new TransactionTemplate(transactionManager);
+		this.objectMapper = objectMapper;
+		this.validator = validator;
+		this.cacheManager = cacheManager;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Import all owners from the given input. The input is closed afterwards.
+	 * @param input the bulk file
+	 * @param format the format of the file
+	 * @return the number of imported owners and the rejected records
+	 * @throws IOException if the input cannot be read
+	 */
+	public ImportReport importOwners(InputStream input, BulkFormat format) throws IOException {
+		Map<String, PetType> types = new HashMap<>();
+		for (PetType type : this.owners.findPetTypes()) {
+			types.put(type.getName().toLowerCase(Locale.ROOT), type);
+		}
+
+		ImportReport report = new ImportReport();
+		List<Candidate> chunk = new ArrayList<>(this.chunkSize);
+		try (OwnerRecordReader reader = format.reader(input, this.objectMapper)) {
+			while (true) {
+				OwnerRecord record;
+				try {
+					record = reader.next();
+				}
+				catch (RecordException ex) {
+					report.reject(ex.getLine(), ex.getMessage());
+					continue;
+				}
+				if (record == null) {
+					break;
+				}
+				List<String> problems = validate(toOwner(record, types), record);
+				if (!problems.isEmpty()) {
+					report.reject(reader.line(), String.join("; ", problems));
+					continue;
+				}
+				chunk.add(new Candidate(reader.line(), record));
+				if (chunk.size() == this.chunkSize) {
+					save(chunk, types, report);
+					chunk.clear();
+				}
+			}
+			save(chunk, types, report);
+		}
+		return report;
+	}
+
+	private void save(List<Candidate> chunk, Map<String, PetType> types, ImportReport report) {
+		if (chunk.isEmpty()) {
+			return;
+		}
+		try {
+			persist(chunk, types);
+			report.imported(chunk.size());
+		}
+		catch (DataAccessException | PersistenceException | TransactionException | ValidationException ex) {
+			for (Candidate candidate : chunk) {
+				try {
+					persist(List.of(candidate), types);
+					report.imported(1);
+				}
+				catch (DataAccessException | PersistenceException | TransactionException | ValidationException rowEx) {
+					report.reject(candidate.line(), "Not saved: " + rowEx.getMessage());
+				}
+			}
+		}
+	}
+
+	private void persist(List<Candidate> chunk, Map<String, PetType> types) {
+		this.transactions.executeWithoutResult(status -> {
+			try {
+				for (Candidate candidate : chunk) {
+					// fresh entities, the ids of a failed attempt are not reused
+					this.entityManager.persist(toOwner(candidate.record(), types));
+				}
+				this.entityManager.flush();
+			}
+			finally {
+				this.entityManager.clear();
+			}
+		});
+		// the owners are persisted directly, not through OwnerRepository.save()
+		this.cacheManager.ifAvailable(cacheManager -> {
+			Cache counts = cacheManager.getCache("ownerCounts");
+			if (counts != null) {
+				counts.clear();
+			}
+		});
+	}
+
+	private Owner toOwner(OwnerRecord record, Map<String, PetType> types) {
+		Owner owner = new Owner();
+		owner.setFirstName(record.firstName());
+		owner.setLastName(record.lastName());
+		owner.setAddress(record.address());
+		owner.setCity(record.city());
+		owner.setTelephone(record.telephone());
+		for (PetRecord petRecord : record.pets()) {
+			Pet pet = new Pet();
+			pet.setName(petRecord.name());
+			pet.setBirthDate(petRecord.birthDate());
+			if (petRecord.type() != null) {
+				pet.setType(types.get(petRecord.type().toLowerCase(Locale.ROOT)));
+			}
+			for (VisitRecord visitRecord : petRecord.visits()) {
+				Visit visit = new Visit();
+				visit.setDate(visitRecord.date());
+				visit.setDescription(visitRecord.description());
+				pet.addVisit(visit);
+			}
+			owner.addPet(pet);
+		}
+		return owner;
+	}
+
+	private List<String> validate(Owner owner, OwnerRecord record) {
+		List<String> problems = new ArrayList<>();
+		for (ConstraintViolation<Owner> violation : this.validator.validate(owner)) {
+			problems.add(violation.getPropertyPath() + " " + violation.getMessage());
+		}
+		for (int i = 0; i < owner.getPets().size(); i++) {
+			Pet pet = owner.getPets().get(i);
+			PetRecord petRecord = record.pets().get(i);
+			if (!StringUtils.hasText(pet.getName())) {
+				problems.add("pet name is required");
+			}
+			if (pet.getBirthDate() == null) {
+				problems.add("birth date of pet " + pet.getName() + " is required");
+			}
+			if (pet.getType() == null) {
+				problems.add("unknown type '" + petRecord.type() + "' of pet " + pet.getName());
+			}
+			for (Visit visit : pet.getVisits()) {
+				if (visit.getDate() == null) {
+					problems.add("date of a visit of pet " + pet.getName() + " is required");
+				}
+				for (ConstraintViolation<Visit> violation : this.validator.validate(visit)) {
+					problems.add(violation.getPropertyPath() + " of a visit of pet " + pet.getName() + " "
+							+ violation.getMessage());
+				}
+			}
+		}
+		return problems;
+	}
+
+	private record Candidate(int line, OwnerRecord record) {
+	}
+
+}
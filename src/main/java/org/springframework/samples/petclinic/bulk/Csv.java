@@ -0,0 +1,122 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The CSV layout of bulk files: one row per visit, repeating the columns of its pet and
+ * owner. Pets without visits and owners without pets leave the trailing columns empty.
+ * Fields follow RFC 4180 quoting, quoted fields may span lines.
+ */
+final class Csv {
+
+	static final List<String> COLUMNS = List.of("first_name", "last_name", "address", "city", "telephone",
+			"pet_name", "pet_birth_date", "pet_type", "visit_date", "visit_description");
+
+	static final String HEADER = String.join(",", COLUMNS);
+
+	private Csv() {
+	}
+
+	/**
+	 * Split a CSV line into its fields.
+	 * @param line the line to split
+	 * @return the unquoted fields
+	 * @throws IllegalArgumentException if a quoted field is not terminated
+	 */
+	static List<String> parse(String line) {
+		List<String> fields = new ArrayList<>(COLUMNS.size());
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c != '"') {
+					field.append(c);
+				}
+				else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				}
+				else {
+					quoted = false;
+				}
+			}
+			else if (c == '"') {
+				quoted = true;
+			}
+			else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			}
+			else {
+				field.append(c);
+			}
+		}
+		if (quoted) {
+			throw new IllegalArgumentException("Unterminated quoted field");
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+	/**
+	 * Whether a line ends inside a quoted field or, if it continues a quoted field,
+	 * closes it: either way, it holds an odd number of quotes. Escaped quotes come in
+	 * pairs and leave the count even.
+	 * @param text the line to check
+	 * @return {@code true} if the number of quotes is odd
+	 */
+	static boolean endsInQuotedField(CharSequence text) {
+		boolean quoted = false;
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) == '"') {
+				quoted = !quoted;
+			}
+		}
+		return quoted;
+	}
+
+	/**
+	 * Join fields into a CSV line, quoting the fields that need it. Missing fields are
+	 * written as empty fields.
+	 * @param fields the fields to join
+	 * @return the line, without line terminator
+	 */
+	static String format(List<String> fields) {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < fields.size(); i++) {
+			String field = fields.get(i);
+			if (i > 0) {
+				line.append(',');
+			}
+			if (field == null) {
+				continue;
+			}
+			if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0
+					|| field.indexOf('\r') >= 0) {
+				line.append('"').append(field.replace("\"", "\"\"")).append('"');
+			}
+			else {
+				line.append(field);
+			}
+		}
+		return line.toString();
+	}
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.samples.petclinic.bulk.OwnerRecord.PetRecord;
+import org.springframework.samples.petclinic.bulk.OwnerRecord.VisitRecord;
+
+/**
+ * Reads the {@link Csv} layout, grouping consecutive rows with the same owner columns
+ * into one owner and consecutive rows with the same pet name into one pet. An optional
+ * header line is skipped.
+ */
+class CsvOwnerRecordReader implements OwnerRecordReader {
+
+	/**
+	 * The most characters of a row spanning lines, so that a quote left open does not
+	 * pull the rest of the input into one row.
+	 */
+	static final int MAX_ROW_LENGTH = 16 * 1024;
+
+	private final BufferedReader input;
+
+	private int lineNumber;
+
+	private int line;
+
+	private Row pending;
+
+	private RecordException pendingError;
+
+	CsvOwnerRecordReader(BufferedReader input) {
+		this.input = input;
+	}
+
+	@Override
+	public OwnerRecord next() throws IOException {
+		if (this.pendingError != null) {
+			RecordException error = this.pendingError;
+			this.pendingError = null;
+			throw error;
+		}
+		Row first = (this.pending != null) ? this.pending : readRow();
+		this.pending = null;
+		if (first == null) {
+			return null;
+		}
+		this.line = first.line();
+		OwnerRecord owner = new OwnerRecord(first.get(0), first.get(1), first.get(2), first.get(3), first.get(4),
+				null);
+		Row row = first;
+		while (row != null && row.sameOwner(first)) {
+			add(owner, row);
+			try {
+				row = readRow();
+			}
+			catch (RecordException ex) {
+				// return the owner read so far, the error is reported by the next call
+				this.pendingError = ex;
+				return owner;
+			}
+		}
+		this.pending = row;
+		return owner;
+	}
+
+	private void add(OwnerRecord owner, Row row) {
+		String petName = row.get(5);
+		if (petName == null) {
+			return;
+		}
+		List<PetRecord> pets = owner.pets();
+		PetRecord pet = pets.isEmpty() ? null : pets.get(pets.size() - 1);
+		if (pet == null || !petName.equals(pet.name())) {
+			pet = new PetRecord(petName, row.birthDate(), row.get(7), null);
+			pets.add(pet);
+		}
+		if (row.visitDate() != null || row.get(9) != null) {
+			pet.visits().add(new VisitRecord(row.visitDate(), row.get(9)));
+		}
+	}
+
+	private Row readRow() throws IOException {
+		String text;
+		do {
+			text = this.input.readLine();
+			if (text == null) {
+				return null;
+			}
+			this.lineNumber++;
+		}
+		while (text.isBlank() || (this.lineNumber == 1 && text.trim().equals(Csv.HEADER)));
+		int first = this.lineNumber;
+		if (Csv.endsInQuotedField(text)) {
+			text = joinQuotedField(text, first);
+		}
+		try {
+			List<String> fields = Csv.parse(text);
+			if (fields.size() != Csv.COLUMNS.size()) {
+				throw new RecordException(first,
+						"Expected " + Csv.COLUMNS.size() + " columns but found " + fields.size());
+			}
+			return new Row(first, fields, date(fields.get(6)), date(fields.get(8)));
+		}
+		catch (IllegalArgumentException | DateTimeException ex) {
+			throw new RecordException(first, ex.getMessage());
+		}
+	}
+
+	/**
+	 * Rejoin the lines of a row whose quoted field spans lines, with the line breaks they
+	 * contained. Only the new line is scanned for quotes: an odd number of them closes
+	 * the field. A field still open after {@value #MAX_ROW_LENGTH} characters is
+	 * reported, and reading resumes with the next line.
+	 */
+	private String joinQuotedField(String text, int first) throws IOException {
+		StringBuilder joined = new StringBuilder(text);
+		String next;
+		while ((next = this.input.readLine()) != null) {
+			this.lineNumber++;
+			joined.append('\n').append(next);
+			if (Csv.endsInQuotedField(next)) {
+				break;
+			}
+			if (joined.length() > MAX_ROW_LENGTH) {
+				throw new RecordException(first, "Quoted field not closed within " + MAX_ROW_LENGTH
+						+ " characters, lines " + first + " to " + this.lineNumber + " are skipped");
+			}
+		}
+		return joined.toString();
+	}
+
+	private static LocalDate date(String text) {
+		return text.isBlank() ? null : LocalDate.parse(text.trim());
+	}
+
+	@Override
+	public int line() {
+		return this.line;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.input.close();
+	}
+
+	private record Row(int line, List<String> fields, LocalDate birthDate, LocalDate visitDate) {
+
+		String get(int column) {
+			String field = this.fields.get(column).trim();
+			return field.isEmpty() ? null : field;
+		}
+
+		boolean sameOwner(Row other) {
+			return this.fields.subList(0, 5).equals(other.fields.subList(0, 5));
+		}
+
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.springframework.samples.petclinic.bulk.OwnerRecord.PetRecord;
+import org.springframework.samples.petclinic.bulk.OwnerRecord.VisitRecord;
+
+/**
+ * Writes the {@link Csv} layout, starting with the header line.
+ */
+class CsvOwnerRecordWriter implements OwnerRecordWriter {
+
+	private final Writer output;
+
+	CsvOwnerRecordWriter(Writer output) throws IOException {
+		this.output = output;
+		writeLine(Csv.HEADER);
+	}
+
+	@Override
+	public void write(OwnerRecord owner) throws IOException {
+		if (owner.pets().isEmpty()) {
+			writeRow(owner, null, null);
+		}
+		for (PetRecord pet : owner.pets()) {
+			if (pet.visits().isEmpty()) {
+				writeRow(owner, pet, null);
+			}
+			for (VisitRecord visit : pet.visits()) {
+				writeRow(owner, pet, visit);
+			}
+		}
+	}
+
+	private void writeRow(OwnerRecord owner, PetRecord pet, VisitRecord visit) throws IOException {
+		String[] fields = new String[Csv.COLUMNS.size()];
+		fields[0] = owner.firstName();
+		fields[1] = owner.lastName();
+		fields[2] = owner.address();
+		fields[3] = owner.city();
+		fields[4] = owner.telephone();
+		if (pet != null) {
+			fields[5] = pet.name();
+			fields[6] = text(pet.birthDate());
+			fields[7] = pet.type();
+		}
+		if (visit != null) {
+			fields[8] = text(visit.date());
+			fields[9] = visit.description();
+		}
+		writeLine(Csv.format(Arrays.asList(fields)));
+	}
+
+	private void writeLine(String line) throws IOException {
+		this.output.write(line);
+		this.output.write('\n');
+	}
+
+	private static String text(LocalDate date) {
+		return Objects.toString(date, null);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.output.flush();
+	}
+
+}
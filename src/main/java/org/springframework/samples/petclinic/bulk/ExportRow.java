@@ -0,0 +1,29 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.time.LocalDate;
+
+/**
+ * A flat row of the owner export: an owner, optionally one of its pets and optionally
+ * one visit of that pet. Read as a projection, so that exported rows never become
+ * managed entities.
+ */
+public record ExportRow(Integer ownerId, String firstName, String lastName, String address, String city,
+		String telephone, Integer petId, String petName, LocalDate petBirthDate, String petType, Integer visitId,
+		LocalDate visitDate, String visitDescription) {
+
+}
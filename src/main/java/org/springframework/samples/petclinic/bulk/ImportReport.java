@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a bulk import: how many owners were imported and which records were
+ * rejected. Only the first {@value #MAX_ERRORS} errors are kept.
+ */
+public class ImportReport {
+
+	static final int MAX_ERRORS = 100;
+
+	private int imported;
+
+	private int rejected;
+
+	private final List<ImportError> errors = new ArrayList<>();
+
+	void imported(int count) {
+		this.imported += count;
+	}
+
+	void reject(int line, String message) {
+		this.rejected++;
+		if (this.errors.size() < MAX_ERRORS) {
+			this.errors.add(new ImportError(line, message));
+		}
+	}
+
+	public int getImported() {
+		return this.imported;
+	}
+
+	public int getRejected() {
+		return this.rejected;
+	}
+
+	public List<ImportError> getErrors() {
+		return Collections.unmodifiableList(this.errors);
+	}
+
+	@Override
+	public String toString() {
+		return "imported " + this.imported + " owners, rejected " + this.rejected;
+	}
+
+	/**
+	 * A rejected record.
+	 * @param line the line on which the record starts
+	 * @param message why the record was rejected
+	 */
+	public record ImportError(int line, String message) {
+
+	}
+
+}
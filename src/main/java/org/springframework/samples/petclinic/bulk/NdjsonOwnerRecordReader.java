@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Reads newline-delimited JSON with one owner, including its pets and visits, per line.
+ * Blank lines are ignored.
+ */
+class NdjsonOwnerRecordReader implements OwnerRecordReader {
+
+	private final BufferedReader input;
+
+	private final ObjectReader objectReader;
+
+	private int line;
+
+	NdjsonOwnerRecordReader(BufferedReader input, ObjectMapper objectMapper) {
+		this.input = input;
+		this.objectReader = objectMapper.readerFor(OwnerRecord.class);
+	}
+
+	@Override
+	public OwnerRecord next() throws IOException {
+		String json;
+		do {
+			json = this.input.readLine();
+			if (json == null) {
+				return null;
+			}
+			this.line++;
+		}
+		while (json.isBlank());
+		try {
+			return this.objectReader.readValue(json);
+		}
+		catch (JacksonException ex) {
+			throw new RecordException(this.line, "Malformed owner: " + ex.getOriginalMessage());
+		}
+	}
+
+	@Override
+	public int line() {
+		return this.line;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.input.close();
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Writes newline-delimited JSON, one owner with its pets and visits per line.
+ */
+class NdjsonOwnerRecordWriter implements OwnerRecordWriter {
+
+	private final Writer output;
+
+	private final ObjectWriter objectWriter;
+
+	NdjsonOwnerRecordWriter(Writer output, ObjectMapper objectMapper) {
+		this.output = output;
+		this.objectWriter = objectMapper.writerFor(OwnerRecord.class);
+	}
+
+	@Override
+	public void write(OwnerRecord owner) throws IOException {
+		this.output.write(this.objectWriter.writeValueAsString(owner));
+		this.output.write('\n');
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.output.flush();
+	}
+
+}
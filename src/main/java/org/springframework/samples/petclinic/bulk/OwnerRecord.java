@@ -0,0 +1,45 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An owner with its pets and their visits as read from or written to a bulk file. Pet
+ * types are referenced by name.
+ */
+record OwnerRecord(String firstName, String lastName, String address, String city, String telephone,
+		List<PetRecord> pets) {
+
+	OwnerRecord {
+		pets = (pets != null) ? pets : new ArrayList<>();
+	}
+
+	record PetRecord(String name, LocalDate birthDate, String type, List<VisitRecord> visits) {
+
+		PetRecord {
+			visits = (visits != null) ? visits : new ArrayList<>();
+		}
+
+	}
+
+	record VisitRecord(LocalDate date, String description) {
+
+	}
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads {@link OwnerRecord}s one at a time from a bulk file, so that only the current
+ * owner is held in memory.
+ */
+interface OwnerRecordReader extends Closeable {
+
+	/**
+	 * Read the next owner.
+	 * @return the next owner, or {@code null} at the end of the input
+	 * @throws RecordException if the next record is malformed; reading may continue
+	 * with the record after it
+	 */
+	OwnerRecord next() throws IOException;
+
+	/**
+	 * Return the line on which the owner last returned by {@link #next()} starts.
+	 */
+	int line();
+
+}
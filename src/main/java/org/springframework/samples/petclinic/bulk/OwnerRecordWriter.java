@@ -0,0 +1,38 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes {@link OwnerRecord}s one at a time to a bulk file.
+ */
+interface OwnerRecordWriter extends Closeable {
+
+	/**
+	 * Write an owner with its pets and visits.
+	 * @param owner the owner to write
+	 */
+	void write(OwnerRecord owner) throws IOException;
+
+	/**
+	 * Flush the buffered records without closing the underlying stream.
+	 */
+	@Override
+	void close() throws IOException;
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.bulk;
+
+/**
+ * Signals a record of a bulk file that cannot be read or imported. The record is
+ * reported and skipped, the rest of the file is still processed.
+ */
+class RecordException extends RuntimeException {
+
+	private final int line;
+
+	RecordException(int line, String message) {
+		super(message);
+		this.line = line;
+	}
+
+	int getLine() {
+		return this.line;
+	}
+
+}
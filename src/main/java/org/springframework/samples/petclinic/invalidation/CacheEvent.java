@@ -0,0 +1,29 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.invalidation;
+
+/**
+ * An event of the {@link CacheEventLog}: a cache to clear or, with a key, a single entry
+ * of some derived state that changed. Keyed events of other instances are published as
+ * application events, for components that keep their own copy of the data, such as a
+ * search index.
+ *
+ * @param cacheName the name of the cache or derived state
+ * @param key the key of the changed entry, or {@code null} for the whole cache
+ */
+public record CacheEvent(String cacheName, String key) {
+
+}
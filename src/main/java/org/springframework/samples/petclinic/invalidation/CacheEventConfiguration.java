@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.invalidation;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import javax.cache.CacheManager;
+
+/**
+ * Configures the {@link CacheEventLog} and schedules its polling
+ * ({@code petclinic.cache.events.poll-interval}).
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableScheduling
+class CacheEventConfiguration {
+
+	@Bean
+	CacheEventLog cacheEventLog(JdbcTemplate jdbcTemplate, CacheManager cacheManager,
+			ApplicationEventPublisher eventPublisher,
+			@Value("${petclinic.cache.events.retention:1h}") Duration retention) {
+		return new CacheEventLog(jdbcTemplate, cacheManager, eventPublisher, retention);
+	}
+
+}
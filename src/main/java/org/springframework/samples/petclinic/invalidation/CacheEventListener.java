@@ -0,0 +1,52 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.invalidation;
+
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.annotation.AnnotationUtils;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Entity listener that records a cache event for each cache named by the
+ * {@link ReplicatedEviction} annotation of a changed entity. The events are written in
+ * the transaction that changes the entity, so they become visible to the other instances
+ * exactly when the change does.
+ */
+public class CacheEventListener {
+
+	private final ObjectProvider<CacheEventLog> eventLog;
+
+	CacheEventListener(ObjectProvider<CacheEventLog> eventLog) {
+		this.eventLog = eventLog;
+	}
+
+	@PostPersist
+	@PostUpdate
+	@PostRemove
+	void entityChanged(Object entity) {
+		ReplicatedEviction eviction = AnnotationUtils.findAnnotation(entity.getClass(),
+				ReplicatedEviction.class);
+		if (eviction != null) {
+			this.eventLog.ifAvailable(log -> log.append(List.of(eviction.value())));
+		}
+	}
+
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.invalidation;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+
+/**
+ * Log of cache events in the {@code cache_events} table, shared by all the application
+ * instances using the same database.
+ * <p>
+ * Writers {@link #append(Collection) append} the names of the caches to clear within
+ * their transaction; the local caches are cleared as soon as the transaction commits.
+ * Every instance {@link #poll() polls} the events above the highest id it has seen and
+ * clears the named caches, except for its own events, which were applied on commit.
+ * Events {@link #append(String, Object) appended with a key} only name an entry that
+ * changed; they are published to the application as {@link CacheEvent}s instead. As ids are assigned before commit, a transaction
+ * that commits late can make an event appear below the high-water mark; the missing ids
+ * are therefore polled again for a while, until they show up or time out. Events are
+ * deleted once they are older than the retention period.
+ */
+public class CacheEventLog {
+
+	private static final Log logger = LogFactory.getLog(CacheEventLog.class);
+
+	/**
+	 * How long a missing id is polled for, well above the duration of a write
+	 * transaction.
+	 */
+	private static final Duration GAP_TIMEOUT = Duration.ofMinutes(1);
+
+	/**
+	 * Missing ids are not tracked beyond this many at once, for instance when the
+	 * database increments ids by more than one.
+	 */
+	private static final int MAX_GAPS = 1000;
+
+	private final String origin = UUID.randomUUID().toString();
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final CacheManager cacheManager;
+
+	private final ApplicationEventPublisher eventPublisher;
+
+	private final Duration retention;
+
+	private long highWaterMark = -1;
+
+	private final TreeMap<Long, Instant> gaps = new TreeMap<>();
+
+	private Instant lastPurge = Instant.MIN;
+
+	public CacheEventLog(JdbcTemplate jdbcTemplate, CacheManager cacheManager, ApplicationEventPublisher eventPublisher,
+			Duration retention) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.cacheManager = cacheManager;
+		this.eventPublisher = eventPublisher;
+		this.retention = retention;
+	}
+
+	/**
+	 * Record that the given caches must be cleared on every instance. Within a
+	 * transaction, each cache is recorded once and cleared locally after commit, so that
+	 * writes bypassing the {@code @CacheEvict} methods are not served stale locally.
+	 * @param cacheNames the names of the caches
+	 */
+	public void append(Collection<String> cacheNames) {
+		append(cacheNames.stream().map(cacheName -> new CacheEvent(cacheName, null)).toList());
+	}
+
+	/**
+	 * Record that an entry of some derived state changed, for the other instances to
+	 * refresh it. The writing instance is expected to have applied the change itself.
+	 * Within a transaction, each entry is recorded once.
+	 * @param cacheName the name of the derived state
+	 * @param key the key of the entry
+	 */
+	public void append(String cacheName, Object key) {
+		append(List.of(new CacheEvent(cacheName, key.toString())));
+	}
+
+	private void append(List<CacheEvent> events) {
+		Set<CacheEvent> pending = new LinkedHashSet<>(events);
+		boolean transactional = TransactionSynchronizationManager.isSynchronizationActive();
+		if (transactional) {
+			Set<CacheEvent> appended = appendedInTransaction();
+			pending.removeAll(appended);
+			appended.addAll(pending);
+		}
+		Timestamp now = Timestamp.from(Instant.now());
+		for (CacheEvent event : pending) {
+			this.jdbcTemplate.update(
+					"INSERT INTO cache_events (cache_name, cache_key, origin, created_at) VALUES (?, ?, ?, ?)",
+					event.cacheName(), event.key(), this.origin, now);
+		}
+		if (!transactional) {
+			clear(cacheNames(pending));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Set<CacheEvent> appendedInTransaction() {
+		Set<CacheEvent> appended = (Set<CacheEvent>) TransactionSynchronizationManager.getResource(this);
+		if (appended == null) {
+			appended = new HashSet<>();
+			TransactionSynchronizationManager.bindResource(this, appended);
+			Set<CacheEvent> events = appended;
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					clear(cacheNames(events));
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(CacheEventLog.this);
+				}
+			});
+		}
+		return appended;
+	}
+
+	/**
+	 * Clear the caches named by the events of the other instances since the last poll
+	 * and publish their keyed events.
+	 * The first poll only records the current high-water mark, as the caches of a new
+	 * instance hold nothing older.
+	 */
+	@Scheduled(fixedDelayString = "${petclinic.cache.events.poll-interval:1s}")
+	public synchronized void poll() {
+		Instant now = Instant.now();
+		if (this.highWaterMark < 0) {
+			this.highWaterMark = this.jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM cache_events",
+					Long.class);
+			return;
+		}
+		long from = this.gaps.isEmpty() ? this.highWaterMark : Math.min(this.highWaterMark, this.gaps.firstKey() - 1);
+		List<Map<String, Object>> events = this.jdbcTemplate
+			.queryForList("SELECT id, cache_name, cache_key, origin FROM cache_events WHERE id > ? ORDER BY id", from);
+		Set<CacheEvent> changes = new LinkedHashSet<>();
+		for (Map<String, Object> event : events) {
+			long id = ((Number) event.get("id")).longValue();
+			if (id > this.highWaterMark) {
+				for (long missing = this.highWaterMark + 1; missing < id && this.gaps.size() < MAX_GAPS; missing++) {
+					this.gaps.put(missing, now);
+				}
+				this.highWaterMark = id;
+			}
+			else if (this.gaps.remove(id) == null) {
+				continue;
+			}
+			if (!this.origin.equals(event.get("origin"))) {
+				changes.add(new CacheEvent((String) event.get("cache_name"), (String) event.get("cache_key")));
+			}
+		}
+		expireGaps(now);
+		Set<String> cacheNames = cacheNames(changes);
+		clear(cacheNames);
+		for (CacheEvent change : changes) {
+			if (change.key() != null) {
+				this.eventPublisher.publishEvent(change);
+			}
+		}
+		if (!cacheNames.isEmpty() && logger.isDebugEnabled()) {
+			logger.debug("Cleared caches " + cacheNames + " changed by other instances");
+		}
+		purge(now);
+	}
+
+	private static Set<String> cacheNames(Collection<CacheEvent> events) {
+		Set<String> cacheNames = new LinkedHashSet<>();
+		for (CacheEvent event : events) {
+			if (event.key() == null) {
+				cacheNames.add(event.cacheName());
+			}
+		}
+		return cacheNames;
+	}
+
+	private void clear(Collection<String> cacheNames) {
+		for (String cacheName : cacheNames) {
+			Cache<Object, Object> cache = this.cacheManager.getCache(cacheName);
+			if (cache != null) {
+				cache.clear();
+			}
+		}
+	}
+
+	private void expireGaps(Instant now) {
+		Instant expired = now.minus(GAP_TIMEOUT);
+		for (Iterator<Instant> gap = this.gaps.values().iterator(); gap.hasNext();) {
+			if (gap.next().isBefore(expired)) {
+				gap.remove();
+			}
+		}
+	}
+
+	private void purge(Instant now) {
+		if (this.lastPurge.isBefore(now.minus(this.retention))) {
+			this.jdbcTemplate.update("DELETE FROM cache_events WHERE created_at < ?",
+					Timestamp.from(now.minus(this.retention)));
+			this.lastPurge = now;
+		}
+	}
+
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * Invalidation of the local caches of every application instance sharing a database:
+ * changes are appended to the {@code cache_events} table in the writing transaction, and
+ * each instance polls the table and clears the affected caches, or refreshes the changed
+ * entries of state it derives itself.
+ */
+package org.springframework.samples.petclinic.invalidation;
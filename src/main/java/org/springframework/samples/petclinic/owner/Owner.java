@@ -15,26 +15,49 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
+import org.hibernate.Hibernate;
 import org.springframework.core.style.ToStringCreator;
+import org.springframework.samples.petclinic.invalidation.CacheEventListener;
+import org.springframework.samples.petclinic.invalidation.ReplicatedEviction;
 import org.springframework.samples.petclinic.model.Person;
 import org.springframework.util.Assert;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.FetchType;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.JoinColumn;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OrderBy;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.NotBlank;
 
 /**
  * Simple JavaBean domain object representing an owner.
+ * <p>
+ * Pets (and their visits) are loaded lazily. Each use case picks one of the named entity
+ * graphs below so that it fetches exactly what its view renders in a single statement.
+ * </p>
+ * <p>
+ * Lookups of a pet by id or name go through indexes built from the pets on first use, so
+ * that owners with thousands of pets are not scanned on every write. The indexes are
+ * dropped by any change made through {@link #getPets()} and when a pet is renamed, and
+ * rebuilt when the pets were changed behind their back (by Hibernate replacing or
+ * loading the collection, or pets being saved). Names are compared ignoring case as by
+ * {@link String#equalsIgnoreCase}.
+ * </p>
  *
  * @author Ken Krebs
  * @author Juergen Hoeller
@@ -45,8 +68,31 @@ import jakarta.validation.constraints.NotBlank;
  */
 @Entity
 @Table(name = "owners")
+@EntityListeners({ CacheEventListener.class, OwnerSearchIndex.ChangeListener.class })
+@ReplicatedEviction("ownerCounts")
+@NamedEntityGraph(name = Owner.SUMMARY_GRAPH, attributeNodes = @NamedAttributeNode("pets"))
+@NamedEntityGraph(name = Owner.PETS_GRAPH, attributeNodes = @NamedAttributeNode(value = "pets", subgraph = "pet"),
+		subgraphs = @NamedSubgraph(name = "pet", attributeNodes = @NamedAttributeNode("type")))
+@NamedEntityGraph(name = Owner.HISTORY_GRAPH, attributeNodes = @NamedAttributeNode(value = "pets", subgraph = "pet"),
+		subgraphs = @NamedSubgraph(name = "pet",
+				attributeNodes = { @NamedAttributeNode("type"), @NamedAttributeNode("visits") }))
 public class Owner extends Person {
 
+	/**
+	 * Owner with the names of its pets, as rendered by the owner search results.
+	 */
+	public static final String SUMMARY_GRAPH = "Owner.summary";
+
+	/**
+	 * Owner with its pets and their types, as needed by the pet forms.
+	 */
+	public static final String PETS_GRAPH = "Owner.pets";
+
+	/**
+	 * Owner with its pets, their types and the complete visit history.
+	 */
+	public static final String HISTORY_GRAPH = "Owner.history";
+
 	@Column(name = "address")
 	@NotBlank
 	private String address;
@@ -60,11 +106,33 @@ public class Owner extends Person {
 	@Pattern(regexp = "\\d{10}", message = "Telephone must be a 10-digit number")
 	private String telephone;
 
-	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+	/**
+	 * The version of the whole aggregate: saving a pet or booking a visit moves the
+	 * owner to a new version too, so that it identifies what the owner pages show.
+	 */
+	@Version
+	@Column(name = "version")
+	private Integer version;
+
+	@OneToMany(cascade = CascadeType.ALL)
 	@JoinColumn(name = "owner_id")
 	@OrderBy("name")
 	private final List<Pet> pets = new ArrayList<>();
 
+	private final transient List<Pet> petsView = new PetList();
+
+	private transient List<Pet> indexedCollection;
+
+	private transient Map<Integer, Pet> petsById;
+
+	private transient Map<String, Pet> petsByName;
+
+	private transient Map<String, Pet> savedPetsByName;
+
+	private transient int indexedPets;
+
+	private transient boolean indexedNewPets;
+
 	public String getAddress() {
 		return this.address;
 	}
@@ -89,16 +157,36 @@ public class Owner extends Person {
 		this.telephone = telephone;
 	}
 
+	public Integer getVersion() {
+		return this.version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
+	/**
+	 * Return the pets of this owner. Changes to the returned list drop the pet indexes.
+	 * @return the live list of pets
+	 */
 	public List<Pet> getPets() {
-		return this.pets;
+		return this.petsView;
 	}
 
 	public void addPet(Pet pet) {
 		if (pet.isNew()) {
+			pet.setOwnerId(getId());
 			getPets().add(pet);
 		}
 	}
 
+	/**
+	 * Whether the pets are loaded, so that reading them does not hit the database.
+	 */
+	boolean isPetsLoaded() {
+		return Hibernate.isInitialized(this.pets);
+	}
+
 	/**
 	 * Return the Pet with the given name, or null if none found for this Owner.
 	 * @param name to test
@@ -114,15 +202,8 @@ public class Owner extends Person {
 	 * @return the Pet with the given id, or null if no such Pet exists for this Owner
 	 */
 	public Pet getPet(Integer id) {
-		for (Pet pet : getPets()) {
-			if (!pet.isNew()) {
-				Integer compId = pet.getId();
-				if (compId.equals(id)) {
-					return pet;
-				}
-			}
-		}
-		return null;
+		indexPets();
+		return this.petsById.get(id);
 	}
 
 	/**
@@ -132,15 +213,51 @@ public class Owner extends Person {
 	 * @return the Pet with the given name, or null if no such Pet exists for this Owner
 	 */
 	public Pet getPet(String name, boolean ignoreNew) {
-		for (Pet pet : getPets()) {
-			String compName = pet.getName();
-			if (compName != null && compName.equalsIgnoreCase(name)) {
-				if (!ignoreNew || !pet.isNew()) {
-					return pet;
+		if (name == null) {
+			return null;
+		}
+		indexPets();
+		return (ignoreNew ? this.savedPetsByName : this.petsByName).get(name);
+	}
+
+	/**
+	 * Bring the pet indexes up to date, rebuilding them if they were dropped, if
+	 * Hibernate replaced the collection or changed its size, or if new pets may since
+	 * have been saved.
+	 */
+	private void indexPets() {
+		List<Pet> pets = this.pets;
+		if (this.petsByName == null || this.indexedCollection != pets || this.indexedPets != pets.size()
+				|| this.indexedNewPets) {
+			Map<Integer, Pet> byId = new HashMap<>();
+			Map<String, Pet> byName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+			Map<String, Pet> savedByName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+			boolean newPets = false;
+			for (Pet pet : pets) {
+				pet.setIndexedBy(this);
+				newPets |= pet.isNew();
+				if (!pet.isNew()) {
+					byId.putIfAbsent(pet.getId(), pet);
+				}
+				if (pet.getName() != null) {
+					// the first pet with a name wins, as it did when the pets were scanned
+					byName.putIfAbsent(pet.getName(), pet);
+					if (!pet.isNew()) {
+						savedByName.putIfAbsent(pet.getName(), pet);
+					}
 				}
 			}
+			this.petsById = byId;
+			this.petsByName = byName;
+			this.savedPetsByName = savedByName;
+			this.indexedCollection = pets;
+			this.indexedPets = pets.size();
+			this.indexedNewPets = newPets;
 		}
-		return null;
+	}
+
+	void invalidatePetIndexes() {
+		this.petsByName = null;
 	}
 
 	@Override
@@ -152,6 +269,7 @@ public class Owner extends Person {
 			.append("address", this.address)
 			.append("city", this.city)
 			.append("telephone", this.telephone)
+			.append("version", this.version)
 			.toString();
 	}
 
@@ -172,4 +290,40 @@ public class Owner extends Person {
 		pet.addVisit(visit);
 	}
 
+	/**
+	 * The pets as handed out by {@link #getPets()}, dropping the pet indexes on every
+	 * change. Hibernate accesses the collection field directly.
+	 */
+	private class PetList extends AbstractList<Pet> {
+
+		@Override
+		public Pet get(int index) {
+			return Owner.this.pets.get(index);
+		}
+
+		@Override
+		public int size() {
+			return Owner.this.pets.size();
+		}
+
+		@Override
+		public Pet set(int index, Pet pet) {
+			invalidatePetIndexes();
+			return Owner.this.pets.set(index, pet);
+		}
+
+		@Override
+		public void add(int index, Pet pet) {
+			invalidatePetIndexes();
+			Owner.this.pets.add(index, pet);
+		}
+
+		@Override
+		public Pet remove(int index) {
+			invalidatePetIndexes();
+			return Owner.this.pets.remove(index);
+		}
+
+	}
+
 }
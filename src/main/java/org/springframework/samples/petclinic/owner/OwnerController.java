@@ -15,14 +15,25 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Window;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -31,7 +42,10 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.support.RequestContextUtils;
 
 import jakarta.validation.Valid;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
@@ -48,10 +62,40 @@ class OwnerController {
 
 	private static final String VIEWS_OWNER_CREATE_OR_UPDATE_FORM = "owners/createOrUpdateOwnerForm";
 
+	/**
+	 * The number of visits shown per pet, on the owner page and each further page.
+	 */
+	static final int VISITS_PAGE_SIZE = 5;
+
+	private static final int SEARCH_LIMIT = 100;
+
+	private static final int MAX_SUGGESTIONS = 20;
+
+	/**
+	 * Part of the tag of each owner page, which also embeds the inline styles and the
+	 * versioned resource links of the running build: a page cached before a restart is
+	 * rendered again.
+	 */
+	private final String startupTag = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
 	private final OwnerRepository owners;
 
-	public OwnerController(OwnerRepository clinicService) {
+	private final VisitRepository visits;
+
+	private final OwnerLoader ownerLoader;
+
+	private final OwnerSearchIndex searchIndex;
+
+	private final long estimateThreshold;
+
+	public OwnerController(OwnerRepository clinicService, VisitRepository visits, OwnerLoader ownerLoader,
+			OwnerSearchIndex searchIndex,
+			@Value("${petclinic.counts.estimate-threshold:1000}") long estimateThreshold) {
 		this.owners = clinicService;
+		this.visits = visits;
+		this.ownerLoader = ownerLoader;
+		this.searchIndex = searchIndex;
+		this.estimateThreshold = estimateThreshold;
 	}
 
 	@InitBinder
@@ -59,10 +103,15 @@ class OwnerController {
 		dataBinder.setDisallowedFields("id");
 	}
 
+	/**
+	 * The owner edited by the forms, loaded without its pets as the forms do not show
+	 * them. The details page binds its owner id under another name, and loads the owner
+	 * with its pets itself.
+	 */
 	@ModelAttribute("owner")
 	public Owner findOwner(@PathVariable(name = "ownerId", required = false) Integer ownerId) {
 		return ownerId == null ? new Owner()
-				: this.owners.findById(ownerId)
+				: this.ownerLoader.findById(ownerId)
 					.orElseThrow(() -> new IllegalArgumentException("Owner not found with id: " + ownerId
 							+ ". Please ensure the ID is correct " + "and the owner exists in the database."));
 	}
@@ -97,6 +146,11 @@ class OwnerController {
 			owner.setLastName(""); // empty string signifies broadest possible search
 		}
 
+		if (StringUtils.hasText(owner.getFirstName()) || StringUtils.hasText(owner.getCity())
+				|| StringUtils.hasText(owner.getTelephone())) {
+			return processIndexSearch(owner, result, model);
+		}
+
 		// find owners by last name
 		Page<Owner> ownersResults = findPaginatedForOwnersLastName(page, owner.getLastName());
 		if (ownersResults.isEmpty()) {
@@ -115,19 +169,74 @@ class OwnerController {
 		return addPaginationModel(page, model, ownersResults);
 	}
 
+	/**
+	 * Suggests owners for the name typed so far in the find form, straight from the
+	 * in-memory index.
+	 */
+	@GetMapping(value = "/owners/suggestions", produces = MediaType.APPLICATION_JSON_VALUE)
+	public @ResponseBody List<OwnerSearchIndex.Suggestion> suggestOwners(@RequestParam("q") String prefix,
+			@RequestParam(defaultValue = "10") int limit) {
+		return this.searchIndex.suggest(prefix, Math.min(limit, MAX_SUGGESTIONS));
+	}
+
+	/**
+	 * Searches the in-memory index when criteria other than the last name are given,
+	 * listing at most {@value #SEARCH_LIMIT} owners without paging.
+	 */
+	private String processIndexSearch(Owner owner, BindingResult result, Model model) {
+		List<OwnerSummary> found = this.searchIndex.search(new OwnerSearchIndex.Query(owner.getFirstName(),
+				owner.getLastName(), owner.getCity(), owner.getTelephone()), SEARCH_LIMIT);
+		if (found.isEmpty()) {
+			result.rejectValue("lastName", "notFound", "not found");
+			return "owners/findOwners";
+		}
+		if (found.size() == 1) {
+			return "redirect:/owners/" + found.get(0).getId();
+		}
+		model.addAttribute("listOwners", found);
+		return "owners/ownersList";
+	}
+
+	/**
+	 * Continues an owner search after the given (last name, id) position. Used by the
+	 * "next" link of the owners list so that paging forward costs the same at any depth.
+	 */
+	@GetMapping(value = "/owners", params = "afterId")
+	public String processFindFormAfter(@RequestParam(defaultValue = "") String afterLastName,
+			@RequestParam int afterId, Owner owner, Model model) {
+		if (owner.getLastName() == null) {
+			owner.setLastName("");
+		}
+
+		ScrollPosition position = ScrollPosition.forward(Map.of("lastName", afterLastName, "id", afterId));
+		Window<Owner> window = this.owners.scrollByLastNameStartingWith(owner.getLastName(), position);
+		List<Owner> listOwners = window.getContent();
+		model.addAttribute("listOwners", listOwners);
+		if (window.hasNext()) {
+			model.addAttribute("nextOwner", listOwners.get(listOwners.size() - 1));
+		}
+		return "owners/ownersList";
+	}
+
 	private String addPaginationModel(int page, Model model, Page<Owner> paginated) {
 		List<Owner> listOwners = paginated.getContent();
 		model.addAttribute("currentPage", page);
 		model.addAttribute("totalPages", paginated.getTotalPages());
 		model.addAttribute("totalItems", paginated.getTotalElements());
+		model.addAttribute("estimatedTotal", paginated.getTotalElements() > this.estimateThreshold);
 		model.addAttribute("listOwners", listOwners);
+		if (paginated.hasNext()) {
+			model.addAttribute("nextOwner", listOwners.get(listOwners.size() - 1));
+		}
 		return "owners/ownersList";
 	}
 
 	private Page<Owner> findPaginatedForOwnersLastName(int page, String lastname) {
 		int pageSize = 5;
 		Pageable pageable = PageRequest.of(page - 1, pageSize);
-		return owners.findByLastNameStartingWith(lastname, pageable);
+		// matches beyond the threshold are not counted, the total is then an estimate
+		return owners.findByLastNameStartingWith(lastname, pageable,
+				() -> owners.countByLastNameStartingWithUpTo(lastname, this.estimateThreshold + 1));
 	}
 
 	@GetMapping("/owners/{ownerId}/edit")
@@ -150,23 +259,49 @@ class OwnerController {
 		}
 
 		owner.setId(ownerId);
-		this.owners.save(owner);
+		try {
+			// the version posted with the form must still be current
+			this.owners.save(owner);
+		}
+		catch (OptimisticLockingFailureException ex) {
+			redirectAttributes.addFlashAttribute("error",
+					"The owner was changed by someone else in the meantime. Please review and try again.");
+			return "redirect:/owners/{ownerId}/edit";
+		}
 		redirectAttributes.addFlashAttribute("message", "Owner Values Updated");
 		return "redirect:/owners/{ownerId}";
 	}
 
 	/**
-	 * Custom handler for displaying an owner.
+	 * Custom handler for displaying an owner. The page is tagged with the version of the
+	 * owner, so that a client that has it already gets a 304 without the visits being
+	 * queried or the page rendered.
 	 * @param ownerId the ID of the owner to display
-	 * @return a ModelMap with the model attributes for the view
+	 * @return a ModelMap with the model attributes for the view, or {@code null} if the
+	 * client's copy is current
 	 */
-	@GetMapping("/owners/{ownerId}")
-	public ModelAndView showOwner(@PathVariable("ownerId") int ownerId) {
+	@GetMapping("/owners/{id}")
+	public ModelAndView showOwner(@PathVariable("id") int ownerId, ServletWebRequest request) {
 		ModelAndView mav = new ModelAndView("owners/ownerDetails");
-		Optional<Owner> optionalOwner = this.owners.findById(ownerId);
+		Optional<Owner> optionalOwner = this.ownerLoader.findWithPetsById(ownerId);
 		Owner owner = optionalOwner.orElseThrow(() -> new IllegalArgumentException(
 				"Owner not found with id: " + ownerId + ". Please ensure the ID is correct "));
+		// a page carrying a flash message is always rendered; the tag is weak, as the
+		// server does not compress responses with a strong one
+		if (RequestContextUtils.getInputFlashMap(request.getRequest()) == null
+				&& request.checkNotModified(
+						"W/\"owner-" + ownerId + "-v" + owner.getVersion() + "-" + this.startupTag + "\"")) {
+			return null;
+		}
 		mav.addObject(owner);
+
+		// only the most recent visits of each pet, older ones are loaded on demand
+		Map<Integer, Slice<Visit>> recentVisits = new HashMap<>(
+				this.visits.findRecentByOwnerId(ownerId, VISITS_PAGE_SIZE));
+		for (Pet pet : owner.getPets()) {
+			recentVisits.putIfAbsent(pet.getId(), new SliceImpl<>(List.of()));
+		}
+		mav.addObject("recentVisits", recentVisits);
 		return mav;
 	}
 
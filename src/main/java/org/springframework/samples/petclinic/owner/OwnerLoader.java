@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * Request-scoped identity map of {@link Owner} aggregates. The controllers load owners
+ * through it, so that an owner is hydrated at most once per request: a lookup is served
+ * from the owner already loaded in the request when that one was loaded with at least
+ * the pets or visits the lookup asks for.
+ * <p>
+ * The lookups are counted in the {@code petclinic.owner.loads} meter, tagged with
+ * {@code result=loaded} or {@code result=avoided}.
+ */
+@Component
+@RequestScope
+public class OwnerLoader {
+
+	/**
+	 * How much of the aggregate has been loaded, each level includes the previous ones.
+	 */
+	private enum Depth {
+
+		OWNER, PETS, HISTORY
+
+	}
+
+	private record Loaded(Owner owner, Depth depth) {
+	}
+
+	private final OwnerRepository owners;
+
+	private final Map<Integer, Loaded> loaded = new HashMap<>();
+
+	private final Counter loads;
+
+	private final Counter avoidedLoads;
+
+	public OwnerLoader(OwnerRepository owners, ObjectProvider<MeterRegistry> meterRegistry) {
+		this.owners = owners;
+		MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+		this.loads = loadCounter(registry, "loaded");
+		this.avoidedLoads = loadCounter(registry, "avoided");
+	}
+
+	private static Counter loadCounter(MeterRegistry registry, String result) {
+		return Counter.builder("petclinic.owner.loads")
+			.description("Owner aggregates requested by the controllers")
+			.tag("result", result)
+			.register(registry);
+	}
+
+	/**
+	 * Retrieve an {@link Owner} without its pets.
+	 */
+	public Optional<Owner> findById(Integer id) {
+		return find(id, Depth.OWNER, this.owners::findById);
+	}
+
+	/**
+	 * Retrieve an {@link Owner} with its pets and their types.
+	 */
+	public Optional<Owner> findWithPetsById(Integer id) {
+		return find(id, Depth.PETS, this.owners::findWithPetsById);
+	}
+
+	/**
+	 * Retrieve an {@link Owner} with its pets, their types and their visits.
+	 */
+	public Optional<Owner> findWithHistoryById(Integer id) {
+		return find(id, Depth.HISTORY, this.owners::findWithHistoryById);
+	}
+
+	private Optional<Owner> find(Integer id, Depth depth, Function<Integer, Optional<Owner>> loader) {
+		Loaded current = this.loaded.get(id);
+		if (current != null && current.depth().compareTo(depth) >= 0) {
+			this.avoidedLoads.increment();
+			return Optional.of(current.owner());
+		}
+		this.loads.increment();
+		Optional<Owner> owner = loader.apply(id);
+		owner.ifPresent(found -> this.loaded.put(id, new Loaded(found, depth)));
+		return owner;
+	}
+
+}
@@ -15,15 +15,29 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.LongSupplier;
 
 import jakarta.annotation.Nonnull;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -38,24 +52,161 @@ import org.springframework.transaction.annotation.Transactional;
  * @author Michael Isvy
  * @author Wick Dynex
  */
-public interface OwnerRepository extends JpaRepository<Owner, Integer> {
+public interface OwnerRepository extends JpaRepository<Owner, Integer>, OwnerVersions {
 
 	/**
-	 * Retrieve all {@link PetType}s from the data store.
+	 * Retrieve all {@link PetType}s from the data store. The result is kept in the
+	 * Hibernate query cache, and the types themselves in the second-level cache.
 	 * @return a Collection of {@link PetType}s.
 	 */
 	@Query("SELECT ptype FROM PetType ptype ORDER BY ptype.name")
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
 	@Transactional(readOnly = true)
 	List<PetType> findPetTypes();
 
 	/**
 	 * Retrieve {@link Owner}s from the data store by last name, returning all owners
-	 * whose last name <i>starts</i> with the given name.
+	 * whose last name <i>starts</i> with the given name, ordered by last name and id.
+	 * <p>
+	 * The page is selected on the owner ids first and then hydrated with the
+	 * {@link Owner#SUMMARY_GRAPH summary graph}, so that fetching the pets never forces
+	 * Hibernate to paginate a collection fetch in memory.
+	 * </p>
 	 * @param lastName Value to search for
 	 * @return a Collection of matching {@link Owner}s (or an empty Collection if none
 	 * found)
 	 */
-	Page<Owner> findByLastNameStartingWith(String lastName, Pageable pageable);
+	default Page<Owner> findByLastNameStartingWith(String lastName, Pageable pageable) {
+		return findByLastNameStartingWith(lastName, pageable, () -> countByLastNameStartingWith(lastName));
+	}
+
+	/**
+	 * Retrieve {@link Owner}s from the data store by last name like
+	 * {@link #findByLastNameStartingWith(String, Pageable)}, taking the total number of
+	 * matches from the given supplier, which is only asked when the total cannot be
+	 * derived from the page itself.
+	 * @param lastName Value to search for
+	 * @param pageable the page to select
+	 * @param total supplier of the total number of matching owners, for instance
+	 * {@link #countByLastNameStartingWithUpTo(String, long)}
+	 * @return the page of matching {@link Owner}s
+	 */
+	default Page<Owner> findByLastNameStartingWith(String lastName, Pageable pageable, LongSupplier total) {
+		List<Integer> ids = findIdsByLastNameStartingWith(lastName, pageable);
+		Map<Integer, Owner> owners = new HashMap<>();
+		if (!ids.isEmpty()) {
+			for (Owner owner : findAllByIdIn(ids)) {
+				owners.put(owner.getId(), owner);
+			}
+		}
+		List<Owner> content = ids.stream().map(owners::get).toList();
+		return PageableExecutionUtils.getPage(content, pageable, total);
+	}
+
+	/**
+	 * Retrieve the next window of {@link Owner}s whose last name <i>starts</i> with the
+	 * given name, seeking past the given position on (last name, id).
+	 * <p>
+	 * Unlike {@link #findByLastNameStartingWith(String, Pageable)} this neither scans the
+	 * skipped rows nor counts the matches, so the cost of a window does not depend on how
+	 * deep the user has paged.
+	 * </p>
+	 * @param lastName Value to search for
+	 * @param position the keyset position to continue from, or
+	 * {@link ScrollPosition#keyset()} to start with the first window
+	 * @return the matching owners with the names of their pets
+	 */
+	default Window<Owner> scrollByLastNameStartingWith(String lastName, ScrollPosition position) {
+		Window<Owner> window = findFirst5ByLastNameStartingWithOrderByLastNameAscIdAsc(lastName, position);
+		Map<Integer, Owner> owners = new HashMap<>();
+		if (!window.isEmpty()) {
+			for (Owner owner : findAllByIdIn(window.map(Owner::getId).getContent())) {
+				owners.put(owner.getId(), owner);
+			}
+		}
+		return window.map(owner -> owners.get(owner.getId()));
+	}
+
+	/**
+	 * Retrieve a window of {@link Owner}s whose last name <i>starts</i> with the given
+	 * name, without their pets.
+	 * @param lastName Value to search for
+	 * @param position the keyset position to continue from
+	 * @return the next window of matching owners
+	 */
+	@Transactional(readOnly = true)
+	Window<Owner> findFirst5ByLastNameStartingWithOrderByLastNameAscIdAsc(String lastName, ScrollPosition position);
+
+	/**
+	 * Retrieve the ids of the {@link Owner}s whose last name <i>starts</i> with the given
+	 * name, ordered by last name and id. Like the derived queries, wildcards in the name
+	 * are matched literally.
+	 * @param lastName Value to search for
+	 * @param pageable the page to select
+	 * @return the matching ids, in page order
+	 */
+	@Query("SELECT owner.id FROM Owner owner "
+			+ "WHERE owner.lastName LIKE CONCAT(:#{escape([0])}, '%') ESCAPE :#{escapeCharacter()} "
+			+ "ORDER BY owner.lastName, owner.id")
+	@Transactional(readOnly = true)
+	List<Integer> findIdsByLastNameStartingWith(String lastName, Pageable pageable);
+
+	/**
+	 * Count the {@link Owner}s whose last name <i>starts</i> with the given name.
+	 * @param lastName Value to search for
+	 * @return the number of matching owners
+	 */
+	@Transactional(readOnly = true)
+	long countByLastNameStartingWith(String lastName);
+
+	/**
+	 * Count the {@link Owner}s whose last name <i>starts</i> with the given name, but
+	 * stop counting at the given limit so that broad searches do not scan every owner.
+	 * The result is cached per name and limit until it expires or an owner is saved.
+	 * @param lastName Value to search for
+	 * @param limit the maximum number of matches to count
+	 * @return the number of matching owners, or {@code limit} if there are at least that
+	 * many
+	 */
+	@Query(value = "SELECT COUNT(*) FROM (SELECT 1 FROM owners "
+			+ "WHERE last_name LIKE CONCAT(:#{escape([0])}, '%') ESCAPE :#{escapeCharacter()} "
+			+ "LIMIT :limit) capped", nativeQuery = true)
+	@Transactional(readOnly = true)
+	@Cacheable("ownerCounts")
+	long countByLastNameStartingWithUpTo(String lastName, @Param("limit") long limit);
+
+	/**
+	 * Retrieve the ids of the {@link Owner}s above the given id, in id order, to walk
+	 * through all owners a batch at a time.
+	 * @param afterId the id to continue after, 0 for the first batch
+	 * @param pageable the size of the batch
+	 * @return the next ids
+	 */
+	@Query("SELECT owner.id FROM Owner owner WHERE owner.id > :afterId ORDER BY owner.id")
+	@Transactional(readOnly = true)
+	List<Integer> findIdsAfter(@Param("afterId") int afterId, Pageable pageable);
+
+	/**
+	 * Retrieve the {@link Owner}s with the given ids together with their pets' names.
+	 * @param ids the ids to look up
+	 * @return the matching owners, in no particular order
+	 */
+	@EntityGraph(Owner.SUMMARY_GRAPH)
+	@Transactional(readOnly = true)
+	List<Owner> findAllByIdIn(Collection<Integer> ids);
+
+	/**
+	 * Retrieve the {@link Owner}s with the given ids together with their pets' names from
+	 * the primary database. Unlike {@link #findAllByIdIn} the transaction is not
+	 * read-only, so a change that was just committed is seen even if a read replica has
+	 * not caught up with it yet.
+	 * @param ids the ids to look up
+	 * @return the matching owners, in no particular order
+	 */
+	@Query("SELECT owner FROM Owner owner WHERE owner.id IN :ids")
+	@EntityGraph(Owner.SUMMARY_GRAPH)
+	@Transactional
+	List<Owner> findAllFromPrimaryByIdIn(@Param("ids") Collection<Integer> ids);
 
 	/**
 	 * Retrieve an {@link Owner} from the data store by id.
@@ -72,9 +223,57 @@ public interface OwnerRepository extends JpaRepository<Owner, Integer> {
 	 */
 	Optional<Owner> findById(@Nonnull Integer id);
 
+	/**
+	 * Retrieve an {@link Owner} together with its pets and their types.
+	 * @param id the id to search for
+	 * @return an {@link Optional} containing the {@link Owner} if found
+	 */
+	@EntityGraph(Owner.PETS_GRAPH)
+	@Transactional(readOnly = true)
+	Optional<Owner> findWithPetsById(Integer id);
+
+	/**
+	 * Retrieve an {@link Owner} together with its pets, their types and visits.
+	 * @param id the id to search for
+	 * @return an {@link Optional} containing the {@link Owner} if found
+	 */
+	@EntityGraph(Owner.HISTORY_GRAPH)
+	@Transactional(readOnly = true)
+	Optional<Owner> findWithHistoryById(Integer id);
+
 	/**
 	 * Returns all the owners from data store
 	 **/
 	Page<Owner> findAll(Pageable pageable);
 
+	/**
+	 * Save an {@link Owner} together with its pets and visits, discarding the cached
+	 * owner counts.
+	 * @param owner the owner to save
+	 * @return the saved owner
+	 */
+	@Override
+	@CacheEvict(cacheNames = "ownerCounts", allEntries = true)
+	<S extends Owner> S save(S owner);
+
+	/**
+	 * Save an {@link Owner} after one of its pets was added or edited, moving the owner
+	 * to exactly one new version even if only the pet changed. The version of the given
+	 * owner must still be current.
+	 * @param owner the owner to save
+	 * @return the saved owner, with its new version
+	 */
+	@Transactional
+	default Owner saveWithPets(Owner owner) {
+		Integer version = owner.getVersion();
+		Owner saved = save(owner);
+		flush();
+		// adding a pet changes the collection of the owner, which moves it to a new
+		// version already; editing a pet leaves the owner's row alone
+		if (Objects.equals(saved.getVersion(), version)) {
+			incrementVersion(saved);
+		}
+		return saved;
+	}
+
 }
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.invalidation.CacheEvent;
+import org.springframework.samples.petclinic.invalidation.CacheEventLog;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * In-memory index of all {@link Owner}s for searching by first name, last name, city and
+ * telephone without a database round trip.
+ * <p>
+ * Names are kept in sorted maps so that a prefix selects a contiguous range, telephone
+ * numbers (digits only) in a hash index, and the words of the city in postings lists.
+ * The index is built at startup and kept current by the {@link ChangeListener} on
+ * {@link Owner} and {@link Pet}, which applies each change once its transaction has
+ * committed. The listener also records the id of the changed owner in the
+ * {@link CacheEventLog}, so that the other application instances sharing the database
+ * reload that owner into their own index when they poll the events. Lookups run
+ * concurrently with updates: the candidates found in the indexes are checked against the
+ * owners themselves before being returned.
+ * <p>
+ * For type-ahead, each owner also has a ready-made {@link Suggestion} sorted by last and
+ * first name, so that a keystroke costs a range scan of the first few entries and
+ * allocates little more than the result list.
+ */
+@Component
+public class OwnerSearchIndex {
+
+	private static final Log logger = LogFactory.getLog(OwnerSearchIndex.class);
+
+	private static final int LOAD_BATCH_SIZE = 500;
+
+	/**
+	 * The name of the {@link CacheEvent}s recording the ids of changed owners.
+	 */
+	static final String CHANGE_EVENTS = "ownerSearchIndex";
+
+	private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private static final Comparator<OwnerSummary> LIST_ORDER = Comparator
+		.comparing(OwnerSummary::getLastName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+		.thenComparing(OwnerSummary::getFirstName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+		.thenComparing(OwnerSummary::getId);
+
+	private final OwnerRepository owners;
+
+	private final Map<Integer, OwnerSummary> summaries = new ConcurrentHashMap<>();
+
+	private final NavigableMap<String, Set<Integer>> firstNames = new ConcurrentSkipListMap<>();
+
+	private final NavigableMap<String, Set<Integer>> lastNames = new ConcurrentSkipListMap<>();
+
+	private final Map<String, Set<Integer>> telephones = new ConcurrentHashMap<>();
+
+	private final Map<String, Set<Integer>> cityWords = new ConcurrentHashMap<>();
+
+	private final NavigableMap<String, Suggestion> suggestions = new ConcurrentSkipListMap<>();
+
+	public OwnerSearchIndex(OwnerRepository owners) {
+		this.owners = owners;
+	}
+
+	/**
+	 * The criteria of a search, all optional and combined with AND.
+	 *
+	 * @param firstName prefix of the first name, ignoring case
+	 * @param lastName prefix of the last name, ignoring case
+	 * @param city words that must all appear in the city, ignoring case
+	 * @param telephone the telephone number, ignoring anything but digits
+	 */
+	public record Query(String firstName, String lastName, String city, String telephone) {
+
+		boolean matches(OwnerSummary owner) {
+			return startsWith(owner.getFirstName(), this.firstName) && startsWith(owner.getLastName(), this.lastName)
+					&& words(owner.getCity()).containsAll(words(this.city))
+					&& (!StringUtils.hasText(this.telephone) || digits(this.telephone).equals(digits(owner.getTelephone())));
+		}
+
+		private static boolean startsWith(String value, String prefix) {
+			return !StringUtils.hasText(prefix) || (value != null && key(value).startsWith(key(prefix)));
+		}
+
+	}
+
+	/**
+	 * An owner proposed while typing a name.
+	 *
+	 * @param id the id of the owner
+	 * @param name the last and first name of the owner
+	 * @param pets the names of the pets of the owner
+	 */
+	public record Suggestion(Integer id, String name, List<String> pets) {
+
+		static Suggestion of(OwnerSummary owner) {
+			return new Suggestion(owner.getId(), owner.getLastName() + ", " + owner.getFirstName(), owner.getPets());
+		}
+
+	}
+
+	/**
+	 * Load all owners into the index.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		int afterId = 0;
+		List<Integer> ids;
+		do {
+			ids = this.owners.findIdsAfter(afterId, PageRequest.of(0, LOAD_BATCH_SIZE));
+			if (!ids.isEmpty()) {
+				for (Owner owner : this.owners.findAllByIdIn(ids)) {
+					put(OwnerSummary.of(owner, OwnerSummary.petNames(owner)));
+				}
+				afterId = ids.get(ids.size() - 1);
+			}
+		}
+		while (ids.size() == LOAD_BATCH_SIZE);
+		logger.info("Indexed " + this.summaries.size() + " owners for searching");
+	}
+
+	/**
+	 * Reload an owner changed by another application instance from the primary database,
+	 * or drop it if it was removed.
+	 * @param event the event naming the owner
+	 */
+	@EventListener
+	public void ownerChanged(CacheEvent event) {
+		if (!CHANGE_EVENTS.equals(event.cacheName())) {
+			return;
+		}
+		Integer id = Integer.valueOf(event.key());
+		// a replica may not have the change yet, and the index keeps what it reads
+		List<Owner> found = this.owners.findAllFromPrimaryByIdIn(List.of(id));
+		if (found.isEmpty()) {
+			remove(id);
+		}
+		else {
+			put(OwnerSummary.of(found.get(0), OwnerSummary.petNames(found.get(0))));
+		}
+	}
+
+	/**
+	 * Search the owners matching all the given criteria.
+	 * @param query the criteria
+	 * @param limit the maximum number of owners to return
+	 * @return the matching owners, ordered by last name, first name and id
+	 */
+	public List<OwnerSummary> search(Query query, int limit) {
+		List<Set<Integer>> postings = new ArrayList<>();
+		if (StringUtils.hasText(query.firstName())) {
+			postings.add(withPrefix(this.firstNames, key(query.firstName())));
+		}
+		if (StringUtils.hasText(query.lastName())) {
+			postings.add(withPrefix(this.lastNames, key(query.lastName())));
+		}
+		if (StringUtils.hasText(query.telephone())) {
+			postings.add(this.telephones.getOrDefault(digits(query.telephone()), Set.of()));
+		}
+		for (String word : words(query.city())) {
+			postings.add(this.cityWords.getOrDefault(word, Set.of()));
+		}
+		Collection<Integer> candidates = postings.isEmpty() ? this.summaries.keySet() : intersect(postings);
+		List<OwnerSummary> found = new ArrayList<>();
+		for (Integer id : candidates) {
+			OwnerSummary owner = this.summaries.get(id);
+			if (owner != null && query.matches(owner)) {
+				found.add(owner);
+			}
+		}
+		found.sort(LIST_ORDER);
+		return (found.size() > limit) ? List.copyOf(found.subList(0, limit)) : found;
+	}
+
+	/**
+	 * Suggest the owners whose last name, followed by a space and the first name, starts
+	 * with the given prefix, ignoring case.
+	 * @param prefix the text typed so far
+	 * @param limit the maximum number of suggestions
+	 * @return the suggestions, ordered by last name, first name and id
+	 */
+	public List<Suggestion> suggest(String prefix, int limit) {
+		if (!StringUtils.hasText(prefix) || limit <= 0) {
+			return List.of();
+		}
+		String from = normalized(prefix).stripLeading();
+		List<Suggestion> found = new ArrayList<>(limit);
+		for (Map.Entry<String, Suggestion> entry : this.suggestions.tailMap(from).entrySet()) {
+			// entries sharing the prefix are contiguous, stop at the first that does not
+			if (found.size() == limit || !entry.getKey().startsWith(from)) {
+				break;
+			}
+			found.add(entry.getValue());
+		}
+		return found;
+	}
+
+	private static Set<Integer> withPrefix(NavigableMap<String, Set<Integer>> index, String prefix) {
+		Set<Integer> ids = new HashSet<>();
+		for (Set<Integer> postings : index.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+			ids.addAll(postings);
+		}
+		return ids;
+	}
+
+	private static Set<Integer> intersect(List<Set<Integer>> postings) {
+		postings.sort(Comparator.comparingInt(Set::size));
+		Set<Integer> ids = new HashSet<>(postings.get(0));
+		for (int i = 1; i < postings.size() && !ids.isEmpty(); i++) {
+			ids.retainAll(postings.get(i));
+		}
+		return ids;
+	}
+
+	/**
+	 * Add or replace an owner.
+	 */
+	synchronized void put(OwnerSummary owner) {
+		remove(owner.getId());
+		this.summaries.put(owner.getId(), owner);
+		this.suggestions.put(suggestionKey(owner), Suggestion.of(owner));
+		if (owner.getFirstName() != null) {
+			post(this.firstNames, key(owner.getFirstName()), owner.getId());
+		}
+		if (owner.getLastName() != null) {
+			post(this.lastNames, key(owner.getLastName()), owner.getId());
+		}
+		if (owner.getTelephone() != null) {
+			post(this.telephones, digits(owner.getTelephone()), owner.getId());
+		}
+		for (String word : words(owner.getCity())) {
+			post(this.cityWords, word, owner.getId());
+		}
+	}
+
+	/**
+	 * Remove an owner, if indexed.
+	 */
+	synchronized void remove(Integer id) {
+		OwnerSummary owner = this.summaries.remove(id);
+		if (owner == null) {
+			return;
+		}
+		this.suggestions.remove(suggestionKey(owner));
+		if (owner.getFirstName() != null) {
+			unpost(this.firstNames, key(owner.getFirstName()), id);
+		}
+		if (owner.getLastName() != null) {
+			unpost(this.lastNames, key(owner.getLastName()), id);
+		}
+		if (owner.getTelephone() != null) {
+			unpost(this.telephones, digits(owner.getTelephone()), id);
+		}
+		for (String word : words(owner.getCity())) {
+			unpost(this.cityWords, word, id);
+		}
+	}
+
+	/**
+	 * Replace the owner keeping its current pets, for changes that did not load them.
+	 */
+	synchronized void putKeepingPets(OwnerSummary owner) {
+		OwnerSummary current = this.summaries.get(owner.getId());
+		put((current != null) ? new OwnerSummary(owner.getId(), owner.getFirstName(), owner.getLastName(),
+				owner.getAddress(), owner.getCity(), owner.getTelephone(), current.getPetsById()) : owner);
+	}
+
+	/**
+	 * Add, rename or (with a {@code null} name) remove a pet of an indexed owner.
+	 */
+	synchronized void putPet(Integer ownerId, Integer petId, String name) {
+		OwnerSummary current = this.summaries.get(ownerId);
+		if (current == null) {
+			return;
+		}
+		Map<Integer, String> pets = new LinkedHashMap<>(current.getPetsById());
+		if (name != null) {
+			pets.put(petId, name);
+		}
+		else {
+			pets.remove(petId);
+		}
+		put(new OwnerSummary(current.getId(), current.getFirstName(), current.getLastName(), current.getAddress(),
+				current.getCity(), current.getTelephone(), pets));
+	}
+
+	private static void post(Map<String, Set<Integer>> index, String key, Integer id) {
+		index.computeIfAbsent(key, any -> ConcurrentHashMap.newKeySet()).add(id);
+	}
+
+	private static void unpost(Map<String, Set<Integer>> index, String key, Integer id) {
+		index.computeIfPresent(key, (any, ids) -> {
+			ids.remove(id);
+			return ids.isEmpty() ? null : ids;
+		});
+	}
+
+	private static String key(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+
+	private static String suggestionKey(OwnerSummary owner) {
+		// the zero-padded id keeps owners with the same name apart, before any longer name
+		return normalized(owner.getLastName() + " " + owner.getFirstName()) + String.format("\0%010d", owner.getId());
+	}
+
+	private static String normalized(String text) {
+		return WORD_SEPARATOR.matcher(key(text)).replaceAll(" ");
+	}
+
+	private static String digits(String telephone) {
+		return (telephone != null) ? telephone.replaceAll("\\D", "") : "";
+	}
+
+	private static Set<String> words(String text) {
+		Set<String> words = new HashSet<>();
+		if (text != null) {
+			for (String word : WORD_SEPARATOR.split(key(text))) {
+				if (!word.isEmpty()) {
+					words.add(word);
+				}
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Entity listener on {@link Owner} and {@link Pet} that copies the changed fields and
+	 * applies them to the index after the transaction commits, and records the changed
+	 * owner for the other instances within the transaction.
+	 */
+	static class ChangeListener {
+
+		private final ObjectProvider<OwnerSearchIndex> index;
+
+		private final ObjectProvider<CacheEventLog> eventLog;
+
+		ChangeListener(ObjectProvider<OwnerSearchIndex> index, ObjectProvider<CacheEventLog> eventLog) {
+			this.index = index;
+			this.eventLog = eventLog;
+		}
+
+		@PostPersist
+		@PostUpdate
+		void entityChanged(Object entity) {
+			if (entity instanceof Owner owner) {
+				replicate(owner.getId());
+				if (owner.isPetsLoaded()) {
+					OwnerSummary summary = OwnerSummary.of(owner, OwnerSummary.petNames(owner));
+					afterCommit(index -> index.put(summary));
+				}
+				else {
+					OwnerSummary summary = OwnerSummary.of(owner, Map.of());
+					afterCommit(index -> index.putKeepingPets(summary));
+				}
+			}
+			else if (entity instanceof Pet pet && pet.getOwnerId() != null) {
+				Integer ownerId = pet.getOwnerId();
+				Integer petId = pet.getId();
+				String name = pet.getName();
+				replicate(ownerId);
+				afterCommit(index -> index.putPet(ownerId, petId, name));
+			}
+		}
+
+		@PostRemove
+		void entityRemoved(Object entity) {
+			if (entity instanceof Owner owner) {
+				Integer ownerId = owner.getId();
+				replicate(ownerId);
+				afterCommit(index -> index.remove(ownerId));
+			}
+			else if (entity instanceof Pet pet && pet.getOwnerId() != null) {
+				Integer ownerId = pet.getOwnerId();
+				Integer petId = pet.getId();
+				replicate(ownerId);
+				afterCommit(index -> index.putPet(ownerId, petId, null));
+			}
+		}
+
+		private void replicate(Integer ownerId) {
+			this.eventLog.ifAvailable(log -> log.append(CHANGE_EVENTS, ownerId));
+		}
+
+		private void afterCommit(Consumer<OwnerSearchIndex> change) {
+			this.index.ifAvailable(index -> {
+				if (TransactionSynchronizationManager.isSynchronizationActive()) {
+					TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+						@Override
+						public void afterCommit() {
+							change.accept(index);
+						}
+					});
+				}
+				else {
+					change.accept(index);
+				}
+			});
+		}
+
+	}
+
+}
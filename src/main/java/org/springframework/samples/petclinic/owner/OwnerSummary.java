@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable copy of the fields of an {@link Owner} that are searched and listed, kept by
+ * the {@link OwnerSearchIndex}. Exposes the same properties as {@link Owner} to the
+ * owners list, the pets being rendered by name.
+ */
+public final class OwnerSummary {
+
+	private final Integer id;
+
+	private final String firstName;
+
+	private final String lastName;
+
+	private final String address;
+
+	private final String city;
+
+	private final String telephone;
+
+	private final Map<Integer, String> pets;
+
+	OwnerSummary(Integer id, String firstName, String lastName, String address, String city, String telephone,
+			Map<Integer, String> pets) {
+		this.id = id;
+		this.firstName = firstName;
+		this.lastName = lastName;
+		this.address = address;
+		this.city = city;
+		this.telephone = telephone;
+		this.pets = Collections.unmodifiableMap(new LinkedHashMap<>(pets));
+	}
+
+	/**
+	 * Copy the given owner, with the given pets (names keyed by id, in display order).
+	 */
+	static OwnerSummary of(Owner owner, Map<Integer, String> pets) {
+		return new OwnerSummary(owner.getId(), owner.getFirstName(), owner.getLastName(), owner.getAddress(),
+				owner.getCity(), owner.getTelephone(), pets);
+	}
+
+	/**
+	 * Return the names of the pets of the given owner keyed by id, in display order.
+	 */
+	static Map<Integer, String> petNames(Owner owner) {
+		Map<Integer, String> pets = new LinkedHashMap<>();
+		for (Pet pet : owner.getPets()) {
+			pets.put(pet.getId(), pet.getName());
+		}
+		return pets;
+	}
+
+	public Integer getId() {
+		return this.id;
+	}
+
+	public String getFirstName() {
+		return this.firstName;
+	}
+
+	public String getLastName() {
+		return this.lastName;
+	}
+
+	public String getAddress() {
+		return this.address;
+	}
+
+	public String getCity() {
+		return this.city;
+	}
+
+	public String getTelephone() {
+		return this.telephone;
+	}
+
+	/**
+	 * Return the names of the pets.
+	 */
+	public List<String> getPets() {
+		return Collections.unmodifiableList(new ArrayList<>(this.pets.values()));
+	}
+
+	Map<Integer, String> getPetsById() {
+		return this.pets;
+	}
+
+}
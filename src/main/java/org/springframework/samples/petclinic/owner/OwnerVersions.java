@@ -0,0 +1,31 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+/**
+ * Repository fragment moving owners to a new version when only their pets or visits
+ * changed.
+ */
+public interface OwnerVersions {
+
+	/**
+	 * Move a managed owner to the next version right away, checking that the version it
+	 * was loaded with is still current. The owner is updated with the new version.
+	 * @param owner the owner, managed by the current persistence context
+	 */
+	void incrementVersion(Owner owner);
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+
+/**
+ * {@link OwnerVersions} backed by a {@link LockModeType#PESSIMISTIC_FORCE_INCREMENT}
+ * lock, which Hibernate applies to an owner already loaded with a single version update.
+ */
+class OwnerVersionsImpl implements OwnerVersions {
+
+	private final EntityManager entityManager;
+
+	OwnerVersionsImpl(EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	@Override
+	public void incrementVersion(Owner owner) {
+		this.entityManager.lock(owner, LockModeType.PESSIMISTIC_FORCE_INCREMENT);
+	}
+
+}
@@ -26,7 +26,7 @@ import org.springframework.samples.petclinic.model.NamedEntity;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.FetchType;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -43,6 +43,7 @@ import jakarta.persistence.Table;
  */
 @Entity
 @Table(name = "pets")
+@EntityListeners(OwnerSearchIndex.ChangeListener.class)
 public class Pet extends NamedEntity {
 
 	@Column(name = "birth_date")
@@ -53,11 +54,33 @@ public class Pet extends NamedEntity {
 	@JoinColumn(name = "type_id")
 	private PetType type;
 
-	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
-	@JoinColumn(name = "pet_id")
+	/**
+	 * The id of the owner, written through {@link Owner#getPets()}.
+	 */
+	@Column(name = "owner_id", insertable = false, updatable = false)
+	private Integer ownerId;
+
+	@OneToMany(cascade = CascadeType.ALL, mappedBy = "pet")
 	@OrderBy("visit_date ASC")
 	private final Set<Visit> visits = new LinkedHashSet<>();
 
+	/**
+	 * The owner whose pet indexes contain this pet, told when the name changes.
+	 */
+	private transient Owner indexedBy;
+
+	@Override
+	public void setName(String name) {
+		super.setName(name);
+		if (this.indexedBy != null) {
+			this.indexedBy.invalidatePetIndexes();
+		}
+	}
+
+	void setIndexedBy(Owner owner) {
+		this.indexedBy = owner;
+	}
+
 	public void setBirthDate(LocalDate birthDate) {
 		this.birthDate = birthDate;
 	}
@@ -74,11 +97,20 @@ public class Pet extends NamedEntity {
 		this.type = type;
 	}
 
+	public Integer getOwnerId() {
+		return this.ownerId;
+	}
+
+	void setOwnerId(Integer ownerId) {
+		this.ownerId = ownerId;
+	}
+
 	public Collection<Visit> getVisits() {
 		return this.visits;
 	}
 
 	public void addVisit(Visit visit) {
+		visit.setPet(this);
 		getVisits().add(visit);
 	}
 
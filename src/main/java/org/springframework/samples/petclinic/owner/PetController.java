@@ -19,6 +19,7 @@ import java.time.LocalDate;
 import java.util.Collection;
 import java.util.Optional;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.util.StringUtils;
@@ -48,18 +49,24 @@ class PetController {
 
 	private final OwnerRepository owners;
 
-	public PetController(OwnerRepository owners) {
+	private final PetTypeCatalog petTypes;
+
+	private final OwnerLoader ownerLoader;
+
+	public PetController(OwnerRepository owners, PetTypeCatalog petTypes, OwnerLoader ownerLoader) {
 		this.owners = owners;
+		this.petTypes = petTypes;
+		this.ownerLoader = ownerLoader;
 	}
 
 	@ModelAttribute("types")
 	public Collection<PetType> populatePetTypes() {
-		return this.owners.findPetTypes();
+		return this.petTypes.getPetTypes();
 	}
 
 	@ModelAttribute("owner")
 	public Owner findOwner(@PathVariable("ownerId") int ownerId) {
-		Optional<Owner> optionalOwner = this.owners.findById(ownerId);
+		Optional<Owner> optionalOwner = this.ownerLoader.findWithPetsById(ownerId);
 		Owner owner = optionalOwner.orElseThrow(() -> new IllegalArgumentException(
 				"Owner not found with id: " + ownerId + ". Please ensure the ID is correct "));
 		return owner;
@@ -78,7 +85,7 @@ class PetController {
 		// 	throw new IllegalArgumentException("Pet ID is required");
 		// }
 
-		Optional<Owner> optionalOwner = this.owners.findById(ownerId);
+		Optional<Owner> optionalOwner = this.ownerLoader.findWithPetsById(ownerId);
 		Owner owner = optionalOwner.orElseThrow(() -> new IllegalArgumentException(
 				"Owner not found with id: " + ownerId + ". Please ensure the ID is correct "));
 		return owner.getPet(petId);
@@ -119,8 +126,9 @@ class PetController {
 		}
 
 		owner.addPet(pet);
-		this.owners.save(owner);
-		redirectAttributes.addFlashAttribute("message", "New Pet has been Added");
+		if (saveWithPets(owner, redirectAttributes)) {
+			redirectAttributes.addFlashAttribute("message", "New Pet has been Added");
+		}
 		return "redirect:/owners/{ownerId}";
 	}
 
@@ -153,9 +161,27 @@ class PetController {
 		}
 
 		owner.addPet(pet);
-		this.owners.save(owner);
-		redirectAttributes.addFlashAttribute("message", "Pet details has been edited");
+		if (saveWithPets(owner, redirectAttributes)) {
+			redirectAttributes.addFlashAttribute("message", "Pet details has been edited");
+		}
 		return "redirect:/owners/{ownerId}";
 	}
 
+	/**
+	 * Save the owner with its pets, unless the owner version posted with the form is no
+	 * longer current.
+	 * @return {@code true} if saved, {@code false} if the form was stale
+	 */
+	private boolean saveWithPets(Owner owner, RedirectAttributes redirectAttributes) {
+		try {
+			this.owners.saveWithPets(owner);
+			return true;
+		}
+		catch (OptimisticLockingFailureException ex) {
+			redirectAttributes.addFlashAttribute("error",
+					"The owner was changed by someone else in the meantime. Please review and try again.");
+			return false;
+		}
+	}
+
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+/**
+ * Repository fragment handing out references to pets that are known to exist, for
+ * associations that only need the foreign key.
+ */
+public interface PetReferences {
+
+	/**
+	 * Return a reference to a pet without loading it.
+	 * @param petId the id of the pet
+	 * @return an uninitialized proxy of the pet
+	 */
+	Pet getPetReference(Integer petId);
+
+}
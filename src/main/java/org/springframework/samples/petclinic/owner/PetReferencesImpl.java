@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * {@link PetReferences} backed by {@link EntityManager#getReference}.
+ */
+class PetReferencesImpl implements PetReferences {
+
+	private final EntityManager entityManager;
+
+	PetReferencesImpl(EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	@Override
+	public Pet getPetReference(Integer petId) {
+		return this.entityManager.getReference(Pet.class, petId);
+	}
+
+}
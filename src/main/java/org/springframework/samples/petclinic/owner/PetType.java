@@ -15,9 +15,12 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.samples.petclinic.model.NamedEntity;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Table;
 
 /**
@@ -25,6 +28,8 @@ import jakarta.persistence.Table;
  */
 @Entity
 @Table(name = "types")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "PetType")
+@EntityListeners(PetTypeCatalog.ChangeListener.class)
 public class PetType extends NamedEntity {
 
 }
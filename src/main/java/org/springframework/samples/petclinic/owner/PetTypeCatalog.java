@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * In-memory catalog of the {@link PetType}s, indexed by name and by id. The pet types are
+ * loaded once at startup and reloaded after a transaction that changed one of them, so
+ * that binding and rendering the pet forms does not query the reference data.
+ */
+@Component
+public class PetTypeCatalog {
+
+	private final OwnerRepository owners;
+
+	private volatile Snapshot snapshot;
+
+	public PetTypeCatalog(OwnerRepository owners) {
+		this.owners = owners;
+	}
+
+	/**
+	 * Reload the pet types from the data store.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void refresh() {
+		this.snapshot = Snapshot.of(this.owners.findPetTypes());
+	}
+
+	/**
+	 * Discard the loaded pet types, they are reloaded on next use.
+	 */
+	void invalidate() {
+		this.snapshot = null;
+	}
+
+	/**
+	 * Return all {@link PetType}s, ordered by name.
+	 */
+	public List<PetType> getPetTypes() {
+		return snapshot().types();
+	}
+
+	public Optional<PetType> findByName(String name) {
+		return Optional.ofNullable(snapshot().byName().get(name));
+	}
+
+	public Optional<PetType> findById(Integer id) {
+		return Optional.ofNullable(snapshot().byId().get(id));
+	}
+
+	private Snapshot snapshot() {
+		Snapshot snapshot = this.snapshot;
+		if (snapshot == null) {
+			snapshot = Snapshot.of(this.owners.findPetTypes());
+			this.snapshot = snapshot;
+		}
+		return snapshot;
+	}
+
+	private record Snapshot(List<PetType> types, Map<String, PetType> byName, Map<Integer, PetType> byId) {
+
+		static Snapshot of(List<PetType> types) {
+			Map<String, PetType> byName = new HashMap<>();
+			Map<Integer, PetType> byId = new HashMap<>();
+			for (PetType type : types) {
+				byName.put(type.getName(), type);
+				if (type.getId() != null) {
+					byId.put(type.getId(), type);
+				}
+			}
+			return new Snapshot(List.copyOf(types), Map.copyOf(byName), Map.copyOf(byId));
+		}
+
+	}
+
+	/**
+	 * Entity listener that invalidates the catalog once a change to a {@link PetType} has
+	 * been committed.
+	 */
+	static class ChangeListener {
+
+		private final ObjectProvider<PetTypeCatalog> catalog;
+
+		ChangeListener(ObjectProvider<PetTypeCatalog> catalog) {
+			this.catalog = catalog;
+		}
+
+		@PostPersist
+		@PostUpdate
+		@PostRemove
+		void petTypeChanged(PetType petType) {
+			if (TransactionSynchronizationManager.isSynchronizationActive()) {
+				TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+					@Override
+					public void afterCommit() {
+						invalidate();
+					}
+				});
+			}
+			else {
+				invalidate();
+			}
+		}
+
+		private void invalidate() {
+			this.catalog.ifAvailable(PetTypeCatalog::invalidate);
+		}
+
+	}
+
+}
@@ -19,14 +19,19 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.InitBinder;
-import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
 
 import jakarta.validation.Valid;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
@@ -42,10 +47,13 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 @Controller
 class VisitController {
 
-	private final OwnerRepository owners;
+	private final VisitRepository visits;
 
-	public VisitController(OwnerRepository owners) {
-		this.owners = owners;
+	private final OwnerLoader ownerLoader;
+
+	public VisitController(VisitRepository visits, OwnerLoader ownerLoader) {
+		this.visits = visits;
+		this.ownerLoader = ownerLoader;
 	}
 
 	@InitBinder
@@ -54,48 +62,72 @@ class VisitController {
 	}
 
 	/**
-	 * Called before each and every @RequestMapping annotated method. 2 goals: - Make sure
-	 * we always have fresh data - Since we do not use the session scope, make sure that
-	 * Pet object always has an id (Even though id is not part of the form fields)
-	 * @param petId
-	 * @return Pet
+	 * Loads the owner and pet shown next to the visit form, with the previous visits of
+	 * the pet, and adds the given visit to the pet. Only needed to render the form: a
+	 * valid visit is booked without loading the owner.
+	 * @param visit the visit being edited
+	 * @throws ResponseStatusException with 404 if the owner or the pet does not exist
 	 */
-	@ModelAttribute("visit")
-	public Visit loadPetWithVisit(@PathVariable("ownerId") int ownerId, @PathVariable("petId") int petId,
-			Map<String, Object> model) {
-		Optional<Owner> optionalOwner = owners.findById(ownerId);
-		Owner owner = optionalOwner.orElseThrow(() -> new IllegalArgumentException(
+	private void loadPetWithVisit(int ownerId, int petId, Visit visit, Map<String, Object> model) {
+		Optional<Owner> optionalOwner = this.ownerLoader.findWithHistoryById(ownerId);
+		Owner owner = optionalOwner.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
 				"Owner not found with id: " + ownerId + ". Please ensure the ID is correct "));
 
 		Pet pet = owner.getPet(petId);
+		if (pet == null) {
+			throw petNotFound(ownerId, petId);
+		}
 		model.put("pet", pet);
 		model.put("owner", owner);
-
-		Visit visit = new Visit();
 		pet.addVisit(visit);
-		return visit;
 	}
 
-	// Spring MVC calls method loadPetWithVisit(...) before initNewVisitForm is
-	// called
 	@GetMapping("/owners/{ownerId}/pets/{petId}/visits/new")
-	public String initNewVisitForm() {
+	public String initNewVisitForm(@PathVariable("ownerId") int ownerId, @PathVariable("petId") int petId,
+			Map<String, Object> model) {
+		Visit visit = new Visit();
+		loadPetWithVisit(ownerId, petId, visit, model);
+		model.put("visit", visit);
 		return "pets/createOrUpdateVisitForm";
 	}
 
-	// Spring MVC calls method loadPetWithVisit(...) before processNewVisitForm is
-	// called
 	@PostMapping("/owners/{ownerId}/pets/{petId}/visits/new")
-	public String processNewVisitForm(@ModelAttribute Owner owner, @PathVariable int petId, @Valid Visit visit,
-			BindingResult result, RedirectAttributes redirectAttributes) {
+	public String processNewVisitForm(@PathVariable("ownerId") int ownerId, @PathVariable("petId") int petId,
+			@Valid Visit visit, BindingResult result, Map<String, Object> model,
+			RedirectAttributes redirectAttributes) {
 		if (result.hasErrors()) {
+			loadPetWithVisit(ownerId, petId, visit, model);
 			return "pets/createOrUpdateVisitForm";
 		}
 
-		owner.addVisit(petId, visit);
-		this.owners.save(owner);
+		this.visits.addVisit(ownerId, petId, visit)
+			.orElseThrow(() -> petNotFound(ownerId, petId));
 		redirectAttributes.addFlashAttribute("message", "Your visit has been booked");
 		return "redirect:/owners/{ownerId}";
 	}
 
+	/**
+	 * Renders a further page of the visits of a pet, most recent first, as table rows to
+	 * be appended to the visits shown on the owner details page. Only the ownership of
+	 * the pet is checked, the owner itself is not loaded.
+	 * @param page the zero-based page of visits; page 0 is shown with the owner
+	 */
+	@GetMapping("/owners/{ownerId}/pets/{petId}/visits")
+	public String showVisits(@PathVariable("ownerId") int ownerId, @PathVariable("petId") int petId,
+			@RequestParam(defaultValue = "1") int page, Model model) {
+		if (!this.visits.existsPetOfOwner(ownerId, petId)) {
+			throw petNotFound(ownerId, petId);
+		}
+		Pageable pageable = PageRequest.of(page, OwnerController.VISITS_PAGE_SIZE);
+		model.addAttribute("visits", this.visits.findByOwnerIdAndPetId(ownerId, petId, pageable));
+		model.addAttribute("ownerId", ownerId);
+		model.addAttribute("petId", petId);
+		return "owners/visitRows :: visitRows";
+	}
+
+	private static ResponseStatusException petNotFound(int ownerId, int petId) {
+		return new ResponseStatusException(HttpStatus.NOT_FOUND,
+				"Pet not found with id: " + petId + " for owner with id: " + ownerId + ".");
+	}
+
 }
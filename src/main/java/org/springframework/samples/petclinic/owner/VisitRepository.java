@@ -0,0 +1,138 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository class for <code>Visit</code> domain objects. Visits are always read most
+ * recent first, using the index on <code>visits (pet_id, visit_date)</code>, so that the
+ * history of a pet can be shown a page at a time.
+ */
+public interface VisitRepository extends Repository<Visit, Integer>, PetReferences {
+
+	/**
+	 * Book a visit for a pet, inserting it directly instead of saving the owner
+	 * aggregate. Only the ownership of the pet is checked, so the cost does not depend
+	 * on how many pets and visits the owner already has. The owner is moved to a new
+	 * version, as if the aggregate had been saved.
+	 * @param ownerId the id of the owner of the pet
+	 * @param petId the id of the pet
+	 * @param visit the new visit
+	 * @return the saved visit; empty if the pet does not belong to the owner
+	 */
+	@Transactional
+	default Optional<Visit> addVisit(Integer ownerId, Integer petId, Visit visit) {
+		if (!existsPetOfOwner(ownerId, petId)) {
+			return Optional.empty();
+		}
+		// the visit only needs the id of its pet for the foreign key
+		visit.setPet(getPetReference(petId));
+		Visit saved = save(visit);
+		incrementOwnerVersion(ownerId);
+		return Optional.of(saved);
+	}
+
+	/**
+	 * Move an owner to a new version after a visit was booked for one of its pets.
+	 * @param ownerId the id of the owner
+	 * @return the number of owners updated
+	 */
+	@Modifying
+	@Query("UPDATE Owner owner SET owner.version = owner.version + 1 WHERE owner.id = :ownerId")
+	@Transactional
+	int incrementOwnerVersion(@Param("ownerId") Integer ownerId);
+
+	/**
+	 * Check whether a pet belongs to an owner.
+	 * @param ownerId the id of the owner
+	 * @param petId the id of the pet
+	 * @return {@code true} if the owner has a pet with the given id
+	 */
+	@Query("SELECT COUNT(pet) > 0 FROM Owner owner JOIN owner.pets pet WHERE owner.id = :ownerId AND pet.id = :petId")
+	@Transactional(readOnly = true)
+	boolean existsPetOfOwner(@Param("ownerId") Integer ownerId, @Param("petId") Integer petId);
+
+	/**
+	 * Save a new <code>Visit</code> to the data store.
+	 * @param visit the <code>Visit</code> to save
+	 * @return the saved <code>Visit</code>
+	 */
+	@Transactional
+	Visit save(Visit visit);
+
+	/**
+	 * Retrieve a page of the visits of a pet, most recent first.
+	 * @param ownerId the id of the owner of the pet
+	 * @param petId the id of the pet
+	 * @param pageable the page to select
+	 * @return the visits on the page; empty if the pet does not belong to the owner
+	 */
+	@Query("SELECT visit FROM Owner owner JOIN owner.pets pet JOIN pet.visits visit "
+			+ "WHERE owner.id = :ownerId AND pet.id = :petId ORDER BY visit.date DESC, visit.id DESC")
+	@Transactional(readOnly = true)
+	Slice<Visit> findByOwnerIdAndPetId(@Param("ownerId") Integer ownerId, @Param("petId") Integer petId,
+			Pageable pageable);
+
+	/**
+	 * Retrieve the first page of visits of each pet of an owner with a single query.
+	 * @param ownerId the id of the owner
+	 * @param size the number of visits per pet
+	 * @return the most recent visits keyed by pet id; pets without visits are left out
+	 */
+	default Map<Integer, Slice<Visit>> findRecentByOwnerId(Integer ownerId, int size) {
+		Map<Integer, List<Visit>> visitsByPet = new HashMap<>();
+		for (Object[] row : findRecentRowsByOwnerId(ownerId, size + 1)) {
+			visitsByPet.computeIfAbsent((Integer) row[0], petId -> new ArrayList<>()).add((Visit) row[1]);
+		}
+		Pageable first = PageRequest.of(0, size);
+		Map<Integer, Slice<Visit>> recent = new HashMap<>();
+		visitsByPet.forEach((petId, visits) -> recent.put(petId,
+				new SliceImpl<>(visits.subList(0, Math.min(size, visits.size())), first, visits.size() > size)));
+		return recent;
+	}
+
+	/**
+	 * Retrieve the pet id and visit of at most <code>limit</code> most recent visits per
+	 * pet of an owner, most recent first. The visits of each pet are numbered in a single
+	 * pass over the <code>(pet_id, visit_date)</code> index, however long the history.
+	 * @param ownerId the id of the owner
+	 * @param limit the number of visits per pet
+	 * @return rows of pet id and {@link Visit}
+	 */
+	@Query("SELECT ranked.petId, visit FROM (SELECT pet.id AS petId, history.id AS visitId, "
+			+ "ROW_NUMBER() OVER (PARTITION BY pet.id ORDER BY history.date DESC, history.id DESC) AS recency "
+			+ "FROM Owner owner JOIN owner.pets pet JOIN pet.visits history WHERE owner.id = :ownerId) ranked "
+			+ "JOIN Visit visit ON visit.id = ranked.visitId "
+			+ "WHERE ranked.recency <= :limit ORDER BY visit.date DESC, visit.id DESC")
+	@Transactional(readOnly = true)
+	List<Object[]> findRecentRowsByOwnerId(@Param("ownerId") Integer ownerId, @Param("limit") long limit);
+
+}
@@ -13,41 +13,161 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.springframework.samples.petclinic.system;
 
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.jcache.JCacheCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Window;
+import org.springframework.samples.petclinic.system.CacheTierProperties.Spec;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
-import javax.cache.configuration.MutableConfiguration;
+import javax.cache.CacheManager;
+import javax.cache.configuration.FactoryBuilder;
 
 /**
  * Cache configuration intended for caches providing the JCache API. This configuration
- * creates the used cache for the application and enables statistics that become
- * accessible via JMX.
+ * creates the caches used by the application, backed by Caffeine, each with the size and
+ * expiry policy set in the {@code petclinic.cache.specs} properties (see
+ * {@link CacheTierProperties}).
+ * <p>
+ * The {@code ownerCounts} and {@code vetCounts} caches hold the total counts behind the
+ * paged listings. They expire shortly after being written, and are evicted on writes
+ * where the application performs them.
+ * <p>
+ * The same cache manager backs the Hibernate second-level cache: the regions of the
+ * cached reference entities ({@code PetType}, {@code Specialty}, {@code Vet} and the
+ * specialties of a vet) and the query cache regions are created here as well.
+ * <p>
+ * Hit, miss, eviction and load time metrics of every cache are published through the
+ * actuator {@code metrics} endpoint, and the {@code cachetier} endpoint shows the size,
+ * policy and statistics of each cache and clears individual caches.
  */
 @Configuration(proxyBeanMethods = false)
 @EnableCaching
+@EnableConfigurationProperties(CacheTierProperties.class)
 class CacheConfiguration {
 
+	/**
+	 * The caches the application relies on. Further caches can be added with a
+	 * {@code petclinic.cache.specs} entry. The update timestamps region must not evict
+	 * entries, so it should never be given a policy.
+	 */
+	private static final List<String> CACHE_NAMES = List.of("vets", "ownerCounts", "vetCounts", "PetType",
+			"Specialty", "Vet", "Vet.specialties", RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+			RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME);
+
+	@Bean
+	public JCacheManagerCustomizer petclinicCacheConfigurationCustomizer(CacheTierProperties properties) {
+		return cm -> {
+			for (String cacheName : cacheNames(properties)) {
+				cm.createCache(cacheName, cacheConfiguration(properties.spec(cacheName)));
+			}
+		};
+	}
+
+	/**
+	 * Hand the application's cache manager to Hibernate, so that the second-level cache
+	 * uses the regions created above instead of a cache manager of its own.
+	 */
 	@Bean
-	public JCacheManagerCustomizer petclinicCacheConfigurationCustomizer() {
-		return cm -> cm.createCache("vets", cacheConfiguration());
+	public HibernatePropertiesCustomizer petclinicSecondLevelCacheCustomizer(ObjectProvider<CacheManager> cacheManager) {
+		return properties -> cacheManager
+			.ifAvailable(manager -> properties.put(ConfigSettings.CACHE_MANAGER, manager));
 	}
 
 	/**
-	 * Create a simple configuration that enable statistics via the JCache programmatic
-	 * configuration API.
+	 * Bind the statistics of the underlying Caffeine caches, which unlike the JCache
+	 * statistics include evictions and load times. Ordered before the JCache binder
+	 * provider of Spring Boot so that it is used for all the caches.
+	 */
+	@Bean
+	@Order(Ordered.HIGHEST_PRECEDENCE)
+	public CacheMeterBinderProvider<JCacheCache> petclinicCacheMeterBinderProvider() {
+		return (cache, tags) -> new CaffeineCacheMetrics<>(
+				cache.getNativeCache().unwrap(com.github.benmanes.caffeine.cache.Cache.class), cache.getName(), tags);
+	}
+
+	@Bean
+	public CacheTierEndpoint cacheTierEndpoint(CacheManager cacheManager, CacheTierProperties properties) {
+		return new CacheTierEndpoint(cacheManager, properties);
+	}
+
+	private static Collection<String> cacheNames(CacheTierProperties properties) {
+		Set<String> cacheNames = new LinkedHashSet<>(CACHE_NAMES);
+		cacheNames.addAll(properties.specs().keySet());
+		return cacheNames;
+	}
+
+	/**
+	 * Create the configuration of a cache from its policy.
 	 * <p>
 	 * Within the configuration object that is provided by the JCache API standard, there
 	 * is only a very limited set of configuration options. The really relevant
 	 * configuration options (like the size limit) must be set via a configuration
-	 * mechanism that is provided by the selected JCache implementation.
+	 * mechanism that is provided by the selected JCache implementation, here the
+	 * {@link CaffeineConfiguration}. Both the JCache statistics (exposed via JMX) and the
+	 * native Caffeine statistics (bound to the metrics) are enabled.
 	 */
-	private javax.cache.configuration.Configuration<Object, Object> cacheConfiguration() {
-		return new MutableConfiguration<>().setStatisticsEnabled(true);
+	private javax.cache.configuration.Configuration<Object, Object> cacheConfiguration(Spec spec) {
+		CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+		configuration.setStatisticsEnabled(true);
+		configuration.setNativeStatisticsEnabled(true);
+		if (spec.maximumWeight() != null) {
+			configuration.setMaximumWeight(OptionalLong.of(spec.maximumWeight()));
+			configuration.setWeigherFactory(Optional.of(new FactoryBuilder.SingletonFactory<>(ElementCountWeigher.INSTANCE)));
+		}
+		else if (spec.maximumSize() != null) {
+			configuration.setMaximumSize(OptionalLong.of(spec.maximumSize()));
+		}
+		configuration.setExpireAfterWrite(nanos(spec.expireAfterWrite()));
+		configuration.setExpireAfterAccess(nanos(spec.expireAfterAccess()));
+		return configuration;
+	}
+
+	private static OptionalLong nanos(Duration duration) {
+		return (duration != null) ? OptionalLong.of(duration.toNanos()) : OptionalLong.empty();
+	}
+
+	/**
+	 * Weighs a collection or a window, like a page of vets, by its number of elements
+	 * and any other value as one.
+	 */
+	private enum ElementCountWeigher implements Weigher<Object, Object>, Serializable {
+
+		INSTANCE;
+
+		@Override
+		public int weigh(Object key, Object value) {
+			if (value instanceof Window<?> window) {
+				return Math.max(1, window.size());
+			}
+			return (value instanceof Collection<?> collection) ? Math.max(1, collection.size()) : 1;
+		}
+
 	}
 
 }
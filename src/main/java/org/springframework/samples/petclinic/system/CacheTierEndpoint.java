@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.samples.petclinic.system.CacheTierProperties.Spec;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+
+/**
+ * Actuator endpoint showing the size, policy and statistics of each application cache,
+ * and clearing individual caches.
+ */
+@Endpoint(id = "cachetier")
+class CacheTierEndpoint {
+
+	private final CacheManager cacheManager;
+
+	private final CacheTierProperties properties;
+
+	CacheTierEndpoint(CacheManager cacheManager, CacheTierProperties properties) {
+		this.cacheManager = cacheManager;
+		this.properties = properties;
+	}
+
+	@ReadOperation
+	public Map<String, CacheDescriptor> caches() {
+		Map<String, CacheDescriptor> caches = new TreeMap<>();
+		for (String cacheName : this.cacheManager.getCacheNames()) {
+			caches.put(cacheName, describe(cacheName));
+		}
+		return caches;
+	}
+
+	@ReadOperation
+	public CacheDescriptor cache(@Selector String cacheName) {
+		return (this.cacheManager.getCache(cacheName) != null) ? describe(cacheName) : null;
+	}
+
+	@DeleteOperation
+	public boolean clearCache(@Selector String cacheName) {
+		Cache<Object, Object> cache = this.cacheManager.getCache(cacheName);
+		if (cache == null) {
+			return false;
+		}
+		cache.clear();
+		return true;
+	}
+
+	private CacheDescriptor describe(String cacheName) {
+		com.github.benmanes.caffeine.cache.Cache<?, ?> cache = this.cacheManager.getCache(cacheName)
+			.unwrap(com.github.benmanes.caffeine.cache.Cache.class);
+		CacheStats stats = cache.stats();
+		return new CacheDescriptor(cache.estimatedSize(), this.properties.spec(cacheName),
+				new Statistics(stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount(),
+						stats.averageLoadPenalty()));
+	}
+
+	/**
+	 * A cache, with its approximate number of entries.
+	 */
+	record CacheDescriptor(long size, Spec policy, Statistics statistics) {
+	}
+
+	/**
+	 * The statistics of a cache since it was created, with the average time to load an
+	 * entry in nanoseconds.
+	 */
+	record Statistics(long hits, long misses, double hitRate, long evictions, double averageLoadPenalty) {
+	}
+
+}
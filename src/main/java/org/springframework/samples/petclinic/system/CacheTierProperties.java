@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Size and expiry policies of the application caches, see {@link CacheConfiguration}.
+ * Cache names that contain a dot, like Hibernate regions, are set in brackets, for
+ * instance {@code petclinic.cache.specs[Vet.specialties].maximum-size=1000}.
+ *
+ * @param specs the policy of each cache, keyed by cache name; a cache without a policy is
+ * unbounded and its entries do not expire
+ */
+@ConfigurationProperties("petclinic.cache")
+record CacheTierProperties(Map<String, Spec> specs) {
+
+	CacheTierProperties {
+		specs = (specs != null) ? Map.copyOf(specs) : Map.of();
+	}
+
+	Spec spec(String cacheName) {
+		return this.specs.getOrDefault(cacheName, Spec.UNBOUNDED);
+	}
+
+	/**
+	 * The policy of a cache.
+	 *
+	 * @param maximumSize the maximum number of entries
+	 * @param maximumWeight the maximum total weight of the entries, where a collection
+	 * weighs its number of elements and any other value weighs one; takes precedence over
+	 * the maximum size
+	 * @param expireAfterWrite how long an entry is kept after it was written
+	 * @param expireAfterAccess how long an entry is kept after it was last read or written
+	 */
+	record Spec(Long maximumSize, Long maximumWeight, Duration expireAfterWrite, Duration expireAfterAccess) {
+
+		static final Spec UNBOUNDED = new Spec(null, null, null, null);
+
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+import jakarta.servlet.ServletContext;
+
+/**
+ * Exposes the critical styles (<code>resources/css/critical.css</code>, compiled from
+ * <code>critical.scss</code>) to the layout, which inlines them so that the top of the
+ * page is rendered before the full stylesheet is loaded.
+ * <p>
+ * The relative <code>url(...)</code> links of the stylesheet are turned into the
+ * versioned links of the resource chain, since the styles are no longer loaded from
+ * the stylesheet location.
+ */
+@ControllerAdvice
+class CriticalStyles {
+
+	private static final String LOCATION = "static/resources/css/critical.css";
+
+	private static final Pattern RELATIVE_URL = Pattern.compile("url\\(([\"']?)\\.\\./([^\"')?#]+)([^\"')]*)\\1\\)");
+
+	private static final Pattern SOURCE_MAP = Pattern.compile("/\\*# sourceMappingURL=[^*]*\\*/");
+
+	private final ResourceUrlProvider resourceUrls;
+
+	private final String contextPath;
+
+	private volatile String styles;
+
+	CriticalStyles(ResourceUrlProvider resourceUrls, ServletContext servletContext) {
+		this.resourceUrls = resourceUrls;
+		this.contextPath = servletContext.getContextPath();
+	}
+
+	@ModelAttribute("criticalStyles")
+	public String getStyles() {
+		String styles = this.styles;
+		if (styles == null) {
+			styles = load();
+			this.styles = styles;
+		}
+		return styles;
+	}
+
+	private String load() {
+		String css;
+		try {
+			css = new ClassPathResource(LOCATION).getContentAsString(StandardCharsets.UTF_8);
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		Matcher url = RELATIVE_URL.matcher(SOURCE_MAP.matcher(css).replaceAll(""));
+		StringBuilder linked = new StringBuilder();
+		while (url.find()) {
+			String path = "/resources/" + url.group(2);
+			String versioned = this.resourceUrls.getForLookupPath(path);
+			String link = this.contextPath + ((versioned != null) ? versioned : path) + url.group(3);
+			url.appendReplacement(linked, Matcher.quoteReplacement("url(\"" + link + "\")"));
+		}
+		url.appendTail(linked);
+		return linked.toString().strip();
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.model.BaseEntity;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.EntityType;
+
+/**
+ * Advances the <code>petclinic_seq</code> sequence past the highest id in use when the
+ * application starts. Rows inserted under the <code>identity</code> profile take their
+ * ids from the identity columns, which the sequence knows nothing about, so a database
+ * switched back from that profile would otherwise be handed ids that are already taken.
+ * Not active under the <code>identity</code> profile itself.
+ * <p>
+ * The sequence is read and restarted with the statements of the {@code database} the
+ * schema was created for. It is only ever moved forward.
+ */
+@Component
+@Profile("!identity")
+@DependsOnDatabaseInitialization
+class IdSequenceInitializer implements InitializingBean {
+
+	private static final Log logger = LogFactory.getLog(IdSequenceInitializer.class);
+
+	/**
+	 * Queries for the next value of the sequence, by database.
+	 */
+	private static final Map<String, String> NEXT_VALUE = Map.of("h2",
+			"SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'PETCLINIC_SEQ'", "hsqldb",
+			"SELECT CAST(NEXT_VALUE AS BIGINT) FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'PETCLINIC_SEQ'",
+			"mysql", "SELECT next_val FROM petclinic_seq", "postgres",
+			"SELECT COALESCE(last_value + increment_by, start_value) FROM pg_sequences WHERE sequencename = 'petclinic_seq'");
+
+	/**
+	 * Statements making the sequence continue from the given value, by database.
+	 */
+	private static final Map<String, String> RESTART = Map.of("h2", "ALTER SEQUENCE petclinic_seq RESTART WITH %d",
+			"hsqldb", "ALTER SEQUENCE petclinic_seq RESTART WITH %d", "mysql", "UPDATE petclinic_seq SET next_val = %d",
+			"postgres", "SELECT setval('petclinic_seq', %d, false)");
+
+	private final EntityManagerFactory entityManagerFactory;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final String database;
+
+	IdSequenceInitializer(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate,
+			@Value("${database}") String database) {
+		this.entityManagerFactory = entityManagerFactory;
+		this.jdbcTemplate = jdbcTemplate;
+		this.database = database;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		String nextValue = NEXT_VALUE.get(this.database);
+		if (nextValue == null) {
+			logger.warn("Not checking the id sequence against the ids in use, unknown database " + this.database);
+			return;
+		}
+		long next = maxId() + 1;
+		Long current = this.jdbcTemplate.queryForObject(nextValue, Long.class);
+		if (current == null || current < next) {
+			logger.info("Advancing the id sequence from " + current + " to " + next + " past the ids in use");
+			this.jdbcTemplate.execute(RESTART.get(this.database).formatted(next));
+		}
+	}
+
+	/**
+	 * The highest id of all the entities drawing their ids from the sequence.
+	 */
+	private long maxId() {
+		long maxId = 0;
+		EntityManager entityManager = this.entityManagerFactory.createEntityManager();
+		try {
+			for (EntityType<?> entity : entityManager.getMetamodel().getEntities()) {
+				if (BaseEntity.class.isAssignableFrom(entity.getJavaType())) {
+					Integer max = entityManager
+						.createQuery("SELECT MAX(e.id) FROM " + entity.getName() + " e", Integer.class)
+						.getSingleResult();
+					if (max != null) {
+						maxId = Math.max(maxId, max);
+					}
+				}
+			}
+		}
+		finally {
+			entityManager.close();
+		}
+		return maxId;
+	}
+
+}
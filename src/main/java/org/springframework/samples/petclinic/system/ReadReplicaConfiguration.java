@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.samples.petclinic.system.ReadReplicaProperties.Replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Sends read-only transactions, such as those of {@code @Transactional(readOnly = true)}
+ * repository methods, to read replicas and everything else to the primary. Active when
+ * at least one replica is configured:
+ *
+ * <pre class="code">
+ * petclinic.datasource.replicas[0].url=jdbc:postgresql://replica/petclinic
+ * petclinic.datasource.max-lag=10s
+ * petclinic.datasource.lag-query=SELECT EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+ * </pre>
+ *
+ * The application {@link DataSource} is a {@link LazyConnectionDataSourceProxy} that only
+ * fetches a connection when the first statement runs, once the transaction has marked it
+ * read-only, and then takes it from the {@link ReplicaDataSource}. Note that a page read
+ * right after a write may not see it yet when served by a replica.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("petclinic.datasource.replicas[0].url")
+@EnableConfigurationProperties(ReadReplicaProperties.class)
+class ReadReplicaConfiguration {
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	HikariDataSource primaryDataSource(DataSourceProperties properties) {
+		HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		dataSource.setPoolName("primary");
+		return dataSource;
+	}
+
+	@Bean
+	ReplicaDataSource replicaDataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+			ReadReplicaProperties replicaProperties) {
+		List<DataSource> replicas = new ArrayList<>();
+		for (Replica replica : replicaProperties.replicas()) {
+			HikariDataSource dataSource = DataSourceBuilder.create()
+				.type(HikariDataSource.class)
+				.url(replica.url())
+				.username((replica.username() != null) ? replica.username() : properties.determineUsername())
+				.password((replica.password() != null) ? replica.password() : properties.determinePassword())
+				.build();
+			dataSource.setPoolName("replica-" + (replicas.size() + 1));
+			dataSource.setReadOnly(true);
+			replicas.add(dataSource);
+		}
+		return new ReplicaDataSource(primaryDataSource, replicas, replicaProperties.maxLag(),
+				replicaProperties.lagCheckInterval(), replicaProperties.lagQuery());
+	}
+
+	@Bean
+	@Primary
+	DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+		LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+		dataSource.setReadOnlyDataSource(replicaDataSource);
+		return dataSource;
+	}
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Read replicas that serve read-only transactions, see
+ * {@link ReadReplicaConfiguration}.
+ *
+ * @param replicas the connection settings of the replicas; the username and password
+ * default to those of the primary
+ * @param maxLag how far a replica may lag behind the primary before reads go elsewhere
+ * @param lagCheckInterval how often the lag of a replica is checked
+ * @param lagQuery query returning the lag of a replica in seconds, for instance
+ * {@code SELECT EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())} on Postgres;
+ * if not set the lag is not checked
+ */
+@ConfigurationProperties("petclinic.datasource")
+record ReadReplicaProperties(List<Replica> replicas, @DefaultValue("10s") Duration maxLag,
+		@DefaultValue("5s") Duration lagCheckInterval, String lagQuery) {
+
+	record Replica(String url, String username, String password) {
+	}
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.support.JdbcUtils;
+
+/**
+ * {@link DataSource} for read-only work that hands out connections to the replicas in
+ * turn. A replica that fails to connect, or whose lag exceeds the tolerance, is skipped
+ * until its next check; when no replica is usable the primary is used instead.
+ * <p>
+ * The lag is measured with the configured query on a connection that is about to be
+ * handed out, at most once per check interval and replica.
+ */
+class ReplicaDataSource extends AbstractDataSource implements AutoCloseable {
+
+	private static final Log logger = LogFactory.getLog(ReplicaDataSource.class);
+
+	private final DataSource primary;
+
+	private final List<Replica> replicas;
+
+	private final Duration maxLag;
+
+	private final Duration lagCheckInterval;
+
+	private final String lagQuery;
+
+	private final AtomicInteger next = new AtomicInteger();
+
+	ReplicaDataSource(DataSource primary, List<DataSource> replicas, Duration maxLag, Duration lagCheckInterval,
+			String lagQuery) {
+		this.primary = primary;
+		this.replicas = replicas.stream().map(Replica::new).toList();
+		this.maxLag = maxLag;
+		this.lagCheckInterval = lagCheckInterval;
+		this.lagQuery = lagQuery;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		int start = this.next.getAndIncrement();
+		for (int i = 0; i < this.replicas.size(); i++) {
+			Replica replica = this.replicas.get(Math.floorMod(start + i, this.replicas.size()));
+			Connection connection = replica.getConnection();
+			if (connection != null) {
+				return connection;
+			}
+		}
+		return this.primary.getConnection();
+	}
+
+	/**
+	 * Return a connection to the primary for the given credentials. The replica pools
+	 * are bound to their configured credentials, so other users cannot be routed to
+	 * them.
+	 */
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return this.primary.getConnection(username, password);
+	}
+
+	/**
+	 * Close the connection pools of the replicas.
+	 */
+	@Override
+	public void close() throws Exception {
+		for (Replica replica : this.replicas) {
+			if (replica.dataSource instanceof AutoCloseable closeable) {
+				closeable.close();
+			}
+		}
+	}
+
+	private class Replica {
+
+		private final DataSource dataSource;
+
+		private volatile boolean usable = true;
+
+		private volatile long checkedAt;
+
+		Replica(DataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+
+		/**
+		 * Return a connection to this replica, or {@code null} if it is not usable.
+		 */
+		Connection getConnection() {
+			long now = System.nanoTime();
+			boolean checkDue = (this.checkedAt == 0)
+					|| (now - this.checkedAt >= ReplicaDataSource.this.lagCheckInterval.toNanos());
+			if (!this.usable && !checkDue) {
+				return null;
+			}
+			Connection connection = null;
+			try {
+				connection = this.dataSource.getConnection();
+				if (checkDue) {
+					this.usable = isLagTolerable(connection);
+					this.checkedAt = now;
+				}
+			}
+			catch (SQLException ex) {
+				logger.warn("Read replica unavailable, reading from the primary until the next check", ex);
+				this.usable = false;
+				this.checkedAt = now;
+			}
+			if (!this.usable) {
+				JdbcUtils.closeConnection(connection);
+				return null;
+			}
+			return connection;
+		}
+
+		private boolean isLagTolerable(Connection connection) throws SQLException {
+			String query = ReplicaDataSource.this.lagQuery;
+			if (query == null) {
+				return true;
+			}
+			try (Statement statement = connection.createStatement(); ResultSet lag = statement.executeQuery(query)) {
+				double seconds = lag.next() ? lag.getDouble(1) : 0;
+				boolean tolerable = seconds * 1000 <= ReplicaDataSource.this.maxLag.toMillis();
+				if (!tolerable) {
+					logger.info("Read replica lags " + seconds + "s behind, reading from the primary");
+				}
+				return tolerable;
+			}
+		}
+
+	}
+
+}
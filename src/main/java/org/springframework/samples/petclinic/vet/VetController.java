@@ -17,14 +17,28 @@ package org.springframework.samples.petclinic.vet;
 
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
 /**
  * @author Juergen Hoeller
@@ -37,43 +51,187 @@ class VetController {
 
 	private final VetRepository vetRepository;
 
-	public VetController(VetRepository clinicService) {
+	private final VetDirectory directory;
+
+	private final VetStreamWriter streamWriter;
+
+	private final VetResponseCache responseCache;
+
+	private final long estimateThreshold;
+
+	public VetController(VetRepository clinicService, VetDirectory directory, VetStreamWriter streamWriter,
+			VetResponseCache responseCache, @Value("${petclinic.counts.estimate-threshold:1000}") long estimateThreshold) {
 		this.vetRepository = clinicService;
+		this.directory = directory;
+		this.streamWriter = streamWriter;
+		this.responseCache = responseCache;
+		this.estimateThreshold = estimateThreshold;
 	}
 
 	@GetMapping("/vets.html")
-	public String showVetList(@RequestParam(defaultValue = "1") int page, Model model) {
+	public String showVetList(@RequestParam(defaultValue = "1") int page,
+			@RequestParam(name = "specialty", required = false) List<String> specialties,
+			@RequestParam(defaultValue = "ALL") VetDirectory.Match match, Model model, WebRequest request) {
+		// a weak tag, as the server does not compress responses with a strong one
+		if (request.checkNotModified("W/\"" + eTag("html") + "\"")) {
+			return null;
+		}
 		// Here we are returning an object of type 'Vets' rather than a collection of Vet
 		// objects so it is simpler for Object-Xml mapping
 		
 		Vets vets = new Vets();
-		Page<Vet> paginated = findPaginated(page);
+		Page<Vet> paginated;
+		boolean hasNext;
+		if (isFiltered(specialties)) {
+			paginated = findPaginated(page, specialties, match);
+			hasNext = paginated.hasNext();
+		}
+		else {
+			// the estimated total cannot tell whether a vet follows the last counted page
+			Window<Vet> window = findWindow(page);
+			paginated = findPaginated(page, window);
+			hasNext = window.hasNext();
+		}
 		vets.getVetList().addAll(paginated.toList());
-		return addPaginationModel(page, paginated, model);
+		model.addAttribute("specialties", this.directory.getSpecialties());
+		model.addAttribute("selectedSpecialties", isFiltered(specialties) ? specialties : List.of());
+		model.addAttribute("match", match);
+		model.addAttribute("filterParams", filterParams(specialties, match));
+		return addPaginationModel(page, paginated, hasNext, model);
+	}
+
+	/**
+	 * The tag of a vet list: the same page of a representation is unchanged for as long
+	 * as the vets are.
+	 */
+	private String eTag(String representation) {
+		return "vets-" + Long.toHexString(this.directory.getGeneration()) + "-" + representation;
 	}
 
-	private String addPaginationModel(int page, Page<Vet> paginated, Model model) {
+	private static boolean isFiltered(List<String> specialties) {
+		return specialties != null && !specialties.isEmpty();
+	}
+
+	/**
+	 * The query string that keeps the specialty filter on the pagination links.
+	 */
+	private static String filterParams(List<String> specialties, VetDirectory.Match match) {
+		if (!isFiltered(specialties)) {
+			return "";
+		}
+		UriComponentsBuilder params = UriComponentsBuilder.newInstance()
+			.queryParam("specialty", specialties.toArray())
+			.queryParam("match", match);
+		return "&" + params.encode().build().getQuery();
+	}
+
+	private String addPaginationModel(int page, Page<Vet> paginated, boolean hasNext, Model model) {
 		List<Vet> listVets = paginated.getContent();
 		model.addAttribute("currentPage", page);
+		model.addAttribute("hasNext", hasNext);
 		model.addAttribute("totalPages", paginated.getTotalPages());
 		model.addAttribute("totalItems", paginated.getTotalElements());
+		model.addAttribute("estimatedTotal", paginated.getTotalElements() > this.estimateThreshold);
 		model.addAttribute("listVets", listVets);
 		return "vets/vetList";
 	}
 
-	private Page<Vet> findPaginated(int page) {
+	private Window<Vet> findWindow(int page) {
+		long offset = (page - 1) * 5L;
+		return vetRepository
+			.findFirst5ByOrderByIdAsc((offset == 0) ? ScrollPosition.offset() : ScrollPosition.offset(offset - 1));
+	}
+
+	private Page<Vet> findPaginated(int page, Window<Vet> window) {
+		int pageSize = 5;
+		Pageable pageable = PageRequest.of(page - 1, pageSize);
+		// vets beyond the threshold are not counted, the total is then an estimate
+		return PageableExecutionUtils.getPage(window.getContent(), pageable,
+				() -> vetRepository.countUpTo(this.estimateThreshold + 1));
+	}
+
+	private Page<Vet> findPaginated(int page, List<String> specialties, VetDirectory.Match match) {
 		int pageSize = 5;
 		Pageable pageable = PageRequest.of(page - 1, pageSize);
-		return vetRepository.findAll(pageable);
+		List<Vet> vets = this.directory.findBySpecialties(specialties, match);
+		int from = (int) Math.min(pageable.getOffset(), vets.size());
+		return new PageImpl<>(vets.subList(from, Math.min(from + pageSize, vets.size())), pageable, vets.size());
 	}
 
+	/**
+	 * Sends the vets as JSON or XML, gzip-compressed if the client accepts it. All vets
+	 * are sent from the bytes kept by the {@link VetResponseCache}.
+	 */
 	@GetMapping({ "/vets" })
-	public @ResponseBody Vets showResourcesVetList() {
-		// Here we are returning an object of type 'Vets' rather than a collection of Vet
-		// objects so it is simpler for JSon/Object mapping
-		Vets vets = new Vets();
-		vets.getVetList().addAll(this.vetRepository.findAll());
-		return vets;
+	public ResponseEntity<byte[]> showResourcesVetList(
+			@RequestParam(name = "specialty", required = false) List<String> specialties,
+			@RequestParam(defaultValue = "ALL") VetDirectory.Match match, ServletWebRequest request)
+			throws HttpMediaTypeNotAcceptableException {
+		MediaType mediaType = this.responseCache.negotiate(request.getHeader(HttpHeaders.ACCEPT));
+		boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+		// JSON and XML are served from the same URL, each encoding gets its own tag
+		request.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+		if (request.checkNotModified(eTag(mediaType.getSubtype() + (gzip ? "-gzip" : "")))) {
+			return null;
+		}
+		byte[] body;
+		if (isFiltered(specialties)) {
+			// Here we are returning an object of type 'Vets' rather than a collection of
+			// Vet objects so it is simpler for JSon/Object mapping
+			Vets vets = new Vets();
+			vets.getVetList().addAll(this.directory.findBySpecialties(specialties, match));
+			body = this.responseCache.render(vets, mediaType, gzip);
+		}
+		else {
+			body = this.responseCache.get(mediaType, gzip);
+		}
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(mediaType);
+		if (gzip) {
+			response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+		}
+		return response.body(body);
+	}
+
+	private static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String coding : StringUtils.tokenizeToStringArray(acceptEncoding, ",")) {
+			String[] params = StringUtils.tokenizeToStringArray(coding, ";");
+			if (params.length > 0 && params[0].equalsIgnoreCase("gzip")) {
+				return params.length == 1 || !params[1].replace(" ", "").matches("q=0(\\.0*)?");
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Streams all vets, or those with the given specialties, one JSON document each, as
+	 * NDJSON or as a JSON text sequence depending on the accepted type. The response is
+	 * sent in chunks as the vets are written.
+	 */
+	@GetMapping(value = "/vets", produces = { MediaType.APPLICATION_NDJSON_VALUE, "application/json-seq" })
+	public ResponseEntity<StreamingResponseBody> streamVetList(
+			@RequestHeader(name = HttpHeaders.ACCEPT, defaultValue = MediaType.APPLICATION_NDJSON_VALUE) String accept,
+			@RequestParam(name = "specialty", required = false) List<String> specialties,
+			@RequestParam(defaultValue = "ALL") VetDirectory.Match match, ServletWebRequest request) {
+		boolean sequence = MediaType.parseMediaTypes(accept)
+			.stream()
+			.anyMatch(VetStreamWriter.APPLICATION_JSON_SEQ::equalsTypeAndSubtype);
+		MediaType contentType = sequence ? VetStreamWriter.APPLICATION_JSON_SEQ : MediaType.APPLICATION_NDJSON;
+		if (request.checkNotModified(eTag(contentType.getSubtype()))) {
+			return null;
+		}
+		if (isFiltered(specialties)) {
+			// the directory holds all vets in memory already, only the matches are written
+			List<Vet> vets = this.directory.findBySpecialties(specialties, match);
+			return ResponseEntity.ok()
+				.contentType(contentType)
+				.body(output -> this.streamWriter.write(output, vets, sequence));
+		}
+		return ResponseEntity.ok()
+			.contentType(contentType)
+			.body(output -> this.streamWriter.write(output, sequence));
 	}
 
 }
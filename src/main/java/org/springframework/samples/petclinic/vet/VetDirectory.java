@@ -0,0 +1,186 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Directory of the vets by specialty. Each {@link Specialty} is given a bit position and
+ * each vet a mask of the bits of its specialties, so that finding the vets with all or
+ * any of a set of specialties is a bitwise scan over the masks.
+ * <p>
+ * The directory is derived from the cached {@link VetRepository#findAll()}, which returns
+ * the same collection until the {@code vets} cache is invalidated (by saving a vet here,
+ * by a cache event from another instance, or by expiry). A different collection means
+ * the vets changed, and the directory is rebuilt from it under a new generation number.
+ */
+@Component
+public class VetDirectory {
+
+	/**
+	 * How the requested specialties are combined.
+	 */
+	public enum Match {
+
+		/** Vets having every requested specialty. */
+		ALL,
+
+		/** Vets having at least one of the requested specialties. */
+		ANY
+
+	}
+
+	private final VetRepository vets;
+
+	/**
+	 * Starts at a random number so that instances do not hand out the same generation
+	 * for different vets.
+	 */
+	private final AtomicLong generations = new AtomicLong(ThreadLocalRandom.current().nextLong());
+
+	private volatile Snapshot snapshot;
+
+	public VetDirectory(VetRepository vets) {
+		this.vets = vets;
+	}
+
+	/**
+	 * Return the generation of the vets, which changes whenever the {@code vets} cache
+	 * was invalidated.
+	 */
+	public long getGeneration() {
+		return snapshot().generation();
+	}
+
+	/**
+	 * Return all the specialties of the vets, ordered by name.
+	 */
+	public List<Specialty> getSpecialties() {
+		return snapshot().specialties();
+	}
+
+	/**
+	 * Find the vets with the given specialties, ordered by id.
+	 * @param names the names of the specialties, ignoring case
+	 * @param match whether the vets need all or any of the specialties
+	 * @return the matching vets; with {@link Match#ALL}, none if a specialty is unknown
+	 */
+	public List<Vet> findBySpecialties(Collection<String> names, Match match) {
+		Snapshot current = snapshot();
+		long[] query = new long[current.words()];
+		for (String name : names) {
+			Integer bit = current.bits().get(key(name));
+			if (bit != null) {
+				query[bit >> 6] |= 1L << bit;
+			}
+			else if (match == Match.ALL) {
+				return List.of();
+			}
+		}
+		List<Vet> found = new ArrayList<>();
+		long[][] masks = current.masks();
+		for (int i = 0; i < masks.length; i++) {
+			if ((match == Match.ALL) ? containsAll(masks[i], query) : containsAny(masks[i], query)) {
+				found.add(current.vets().get(i));
+			}
+		}
+		return found;
+	}
+
+	private static boolean containsAll(long[] mask, long[] query) {
+		for (int word = 0; word < query.length; word++) {
+			if ((mask[word] & query[word]) != query[word]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean containsAny(long[] mask, long[] query) {
+		for (int word = 0; word < query.length; word++) {
+			if ((mask[word] & query[word]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Snapshot snapshot() {
+		Collection<Vet> source = this.vets.findAll();
+		Snapshot current = this.snapshot;
+		if (current == null || current.source() != source) {
+			current = Snapshot.of(source, this.generations.incrementAndGet());
+			this.snapshot = current;
+		}
+		return current;
+	}
+
+	private static String key(String name) {
+		return name.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * The vets ordered by id with their masks, and the bit position of each specialty
+	 * keyed by name.
+	 */
+	private record Snapshot(Collection<Vet> source, long generation, List<Vet> vets, List<Specialty> specialties,
+			Map<String, Integer> bits, long[][] masks) {
+
+		static Snapshot of(Collection<Vet> source, long generation) {
+			List<Vet> vets = new ArrayList<>(source);
+			vets.sort(Comparator.comparing(Vet::getId));
+			Map<Integer, Specialty> byId = new TreeMap<>();
+			for (Vet vet : vets) {
+				for (Specialty specialty : vet.getSpecialties()) {
+					byId.putIfAbsent(specialty.getId(), specialty);
+				}
+			}
+			Map<Integer, Integer> bitById = new HashMap<>();
+			Map<String, Integer> bits = new HashMap<>();
+			for (Specialty specialty : byId.values()) {
+				bitById.put(specialty.getId(), bitById.size());
+				bits.put(key(specialty.getName()), bitById.get(specialty.getId()));
+			}
+			long[][] masks = new long[vets.size()][(bitById.size() + 63) >> 6];
+			for (int i = 0; i < vets.size(); i++) {
+				for (Specialty specialty : vets.get(i).getSpecialties()) {
+					int bit = bitById.get(specialty.getId());
+					masks[i][bit >> 6] |= 1L << bit;
+				}
+			}
+			List<Specialty> specialties = new ArrayList<>(byId.values());
+			specialties.sort(Comparator.comparing(Specialty::getName));
+			return new Snapshot(source, generation, List.copyOf(vets), List.copyOf(specialties), Map.copyOf(bits), masks);
+		}
+
+		int words() {
+			return (this.bits.size() + 63) >> 6;
+		}
+
+	}
+
+}
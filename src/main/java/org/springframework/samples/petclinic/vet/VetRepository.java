@@ -15,14 +15,22 @@
  */
 package org.springframework.samples.petclinic.vet;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.DataAccessException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collection;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
 
 /**
  * Repository class for <code>Vet</code> domain objects All method names are compliant
@@ -43,16 +51,54 @@ public interface VetRepository extends Repository<Vet, Integer> {
 	 */
 	@Transactional(readOnly = true)
 	@Cacheable("vets")
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
 	Collection<Vet> findAll() throws DataAccessException;
 
 	/**
-	 * Retrieve all <code>Vet</code>s from data store in Pages
-	 * @param pageable
-	 * @return
+	 * Retrieve the next five <code>Vet</code>s from the data store, ordered by id. One
+	 * more vet is read to tell whether the window has a next one; the total is left to
+	 * {@link #countUpTo(long)}.
+	 * @param position the offset to continue after, or {@link ScrollPosition#offset()}
+	 * for the first vets
+	 * @return the <code>Vet</code>s of the window
 	 * @throws DataAccessException
 	 */
 	@Transactional(readOnly = true)
 	@Cacheable("vets")
-	Page<Vet> findAll(Pageable pageable) throws DataAccessException;
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+	Window<Vet> findFirst5ByOrderByIdAsc(ScrollPosition position) throws DataAccessException;
+
+	/**
+	 * Count the <code>Vet</code>s in the data store, but stop counting at the given
+	 * limit. The result is cached until it expires or a vet is saved.
+	 * @param limit the maximum number of vets to count
+	 * @return the number of vets, or {@code limit} if there are at least that many
+	 * @throws DataAccessException
+	 */
+	@Query(value = "SELECT COUNT(*) FROM (SELECT 1 FROM vets LIMIT :limit) capped", nativeQuery = true)
+	@Transactional(readOnly = true)
+	@Cacheable("vetCounts")
+	long countUpTo(@Param("limit") long limit) throws DataAccessException;
+
+	/**
+	 * Stream all vets with their specialties as flat rows, one per specialty, ordered by
+	 * vet id and specialty name, fetching 500 rows per round trip. The stream must be
+	 * consumed and closed within a transaction.
+	 * @return the rows of all vets
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.vet.VetRow(vet.id, vet.firstName, vet.lastName, "
+			+ "specialty.id, specialty.name) FROM Vet vet LEFT JOIN vet.specialties specialty "
+			+ "ORDER BY vet.id, specialty.name")
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+	Stream<VetRow> streamRows();
+
+	/**
+	 * Save a <code>Vet</code> to the data store, discarding the cached vets and counts.
+	 * @param vet the <code>Vet</code> to save
+	 * @return the saved <code>Vet</code>
+	 * @throws DataAccessException
+	 */
+	@CacheEvict(cacheNames = { "vets", "vetCounts" }, allEntries = true)
+	Vet save(Vet vet) throws DataAccessException;
 
 }
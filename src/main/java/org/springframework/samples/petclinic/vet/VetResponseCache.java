@@ -0,0 +1,179 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+/**
+ * Cache of the encoded body of the <code>/vets</code> resource. Each negotiated media
+ * type, plain or gzip-compressed, is encoded once by the message converter Spring MVC
+ * would have used, and the bytes are then served as they are until the vets change.
+ * <p>
+ * The cache follows the {@link VetDirectory#getGeneration() generation} of the vets, so
+ * it is dropped as soon as the {@code vets} cache is invalidated.
+ */
+@Component
+public class VetResponseCache {
+
+	private static final List<MediaType> CANDIDATES = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML);
+
+	private final VetRepository vets;
+
+	private final VetDirectory directory;
+
+	private final List<HttpMessageConverter<?>> converters;
+
+	private final List<MediaType> mediaTypes;
+
+	private volatile Bodies bodies;
+
+	public VetResponseCache(VetRepository vets, VetDirectory directory, HttpMessageConverters converters) {
+		this.vets = vets;
+		this.directory = directory;
+		this.converters = converters.getConverters();
+		List<MediaType> mediaTypes = new ArrayList<>();
+		for (MediaType candidate : CANDIDATES) {
+			if (converterFor(candidate) != null) {
+				mediaTypes.add(candidate);
+			}
+		}
+		this.mediaTypes = List.copyOf(mediaTypes);
+	}
+
+	/**
+	 * Return the media types the vets can be encoded as, preferred first.
+	 */
+	public List<MediaType> getMediaTypes() {
+		return this.mediaTypes;
+	}
+
+	/**
+	 * Choose the media type to send for an <code>Accept</code> header.
+	 * @param accept the header, or {@code null} to accept anything
+	 * @return the most specific, highest quality media type that can be sent
+	 * @throws HttpMediaTypeNotAcceptableException if none of the accepted types can
+	 */
+	public MediaType negotiate(String accept) throws HttpMediaTypeNotAcceptableException {
+		List<MediaType> accepted = StringUtils.hasText(accept) ? MediaType.parseMediaTypes(accept)
+				: List.of(MediaType.ALL);
+		accepted = new ArrayList<>(accepted);
+		MimeTypeUtils.sortBySpecificity(accepted);
+		for (MediaType type : accepted) {
+			if (type.getQualityValue() == 0) {
+				continue;
+			}
+			for (MediaType mediaType : this.mediaTypes) {
+				if (type.isCompatibleWith(mediaType)) {
+					return mediaType;
+				}
+			}
+		}
+		throw new HttpMediaTypeNotAcceptableException(this.mediaTypes);
+	}
+
+	/**
+	 * Return the encoded body of all vets, rendering it only if the vets changed since it
+	 * was last rendered.
+	 * @param mediaType one of the {@link #getMediaTypes() media types}
+	 * @param gzip whether to compress the body
+	 */
+	public byte[] get(MediaType mediaType, boolean gzip) {
+		// read the generation before the vets: a body rendered from newer vets than the
+		// generation is at worst rendered again, never served once the vets are stale
+		long generation = this.directory.getGeneration();
+		Bodies current = this.bodies;
+		if (current == null || current.generation() != generation) {
+			current = new Bodies(generation, new ConcurrentHashMap<>());
+			this.bodies = current;
+		}
+		return current.encoded().computeIfAbsent(new Key(mediaType, gzip), key -> {
+			Vets vets = new Vets();
+			vets.getVetList().addAll(this.vets.findAll());
+			return render(vets, key.mediaType(), key.gzip());
+		});
+	}
+
+	/**
+	 * Encode the given vets without caching them.
+	 */
+	public byte[] render(Vets vets, MediaType mediaType, boolean gzip) {
+		HttpMessageConverter<?> converter = converterFor(mediaType);
+		if (converter == null) {
+			throw new IllegalArgumentException("Vets cannot be written as " + mediaType);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+		try (OutputStream body = gzip ? new GZIPOutputStream(bytes) : bytes) {
+			write(converter, vets, mediaType, body);
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return bytes.toByteArray();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void write(HttpMessageConverter<?> converter, Vets vets, MediaType mediaType, OutputStream body)
+			throws IOException {
+		HttpHeaders headers = new HttpHeaders();
+		((HttpMessageConverter<Object>) converter).write(vets, mediaType, new HttpOutputMessage() {
+
+			@Override
+			public OutputStream getBody() {
+				return body;
+			}
+
+			@Override
+			public HttpHeaders getHeaders() {
+				return headers;
+			}
+
+		});
+	}
+
+	private HttpMessageConverter<?> converterFor(MediaType mediaType) {
+		for (HttpMessageConverter<?> converter : this.converters) {
+			if (converter.canWrite(Vets.class, mediaType)) {
+				return converter;
+			}
+		}
+		return null;
+	}
+
+	private record Key(MediaType mediaType, boolean gzip) {
+	}
+
+	private record Bodies(long generation, ConcurrentMap<Key, byte[]> encoded) {
+	}
+
+}
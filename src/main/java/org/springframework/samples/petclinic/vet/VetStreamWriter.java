@@ -0,0 +1,182 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes all vets as a stream of JSON documents, one per vet, either newline-delimited
+ * (<code>application/x-ndjson</code>) or as a JSON text sequence
+ * (<code>application/json-seq</code>, RFC 7464).
+ * <p>
+ * If the {@code vets} cache holds the result of {@link VetRepository#findAll()}, the
+ * cached vets are written. Otherwise the vets are read from a cursor over
+ * {@link VetRepository#streamRows()} and written one at a time, so that the heap used
+ * does not depend on the number of vets and the first vet is sent before the last is
+ * read.
+ */
+@Component
+public class VetStreamWriter {
+
+	/**
+	 * The media type of a JSON text sequence.
+	 */
+	public static final MediaType APPLICATION_JSON_SEQ = MediaType.valueOf("application/json-seq");
+
+	private static final int FLUSH_EVERY = 64;
+
+	private static final char RECORD_SEPARATOR = '\u001E';
+
+	private final VetRepository vets;
+
+	private final ObjectProvider<CacheManager> cacheManager;
+
+	private final ObjectMapper objectMapper;
+
+	private final ObjectWriter vetWriter;
+
+	public VetStreamWriter(VetRepository vets, ObjectProvider<CacheManager> cacheManager, ObjectMapper objectMapper) {
+		this.vets = vets;
+		this.cacheManager = cacheManager;
+		this.objectMapper = objectMapper;
+		this.vetWriter = objectMapper.writerFor(Vet.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+	}
+
+	/**
+	 * Write all vets. The output is flushed but not closed.
+	 * @param output where to write the vets
+	 * @param sequence whether to write a JSON text sequence rather than NDJSON
+	 * @return the number of vets written
+	 * @throws IOException if the output cannot be written
+	 */
+	@Transactional(readOnly = true)
+	public int write(OutputStream output, boolean sequence) throws IOException {
+		try (JsonGenerator generator = this.objectMapper.getFactory().createGenerator(output)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			Collection<Vet> cached = cachedVets();
+			if (cached != null) {
+				return write(cached.iterator(), generator, sequence);
+			}
+			try (Stream<VetRow> rows = this.vets.streamRows()) {
+				return write(new VetIterator(rows.iterator()), generator, sequence);
+			}
+		}
+	}
+
+	/**
+	 * Write the given vets, such as those selected by the {@link VetDirectory}. The
+	 * output is flushed but not closed.
+	 * @param output where to write the vets
+	 * @param vets the vets to write
+	 * @param sequence whether to write a JSON text sequence rather than NDJSON
+	 * @return the number of vets written
+	 * @throws IOException if the output cannot be written
+	 */
+	public int write(OutputStream output, Collection<Vet> vets, boolean sequence) throws IOException {
+		try (JsonGenerator generator = this.objectMapper.getFactory().createGenerator(output)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			return write(vets.iterator(), generator, sequence);
+		}
+	}
+
+	private int write(Iterator<Vet> vets, JsonGenerator generator, boolean sequence) throws IOException {
+		int count = 0;
+		while (vets.hasNext()) {
+			if (sequence) {
+				generator.writeRaw(RECORD_SEPARATOR);
+			}
+			this.vetWriter.writeValue(generator, vets.next());
+			generator.writeRaw('\n');
+			// the first vet goes out at once, then in chunks
+			if (++count % FLUSH_EVERY == 1) {
+				generator.flush();
+			}
+		}
+		generator.flush();
+		return count;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Collection<Vet> cachedVets() {
+		CacheManager cacheManager = this.cacheManager.getIfAvailable();
+		Cache cache = (cacheManager != null) ? cacheManager.getCache("vets") : null;
+		Cache.ValueWrapper cached = (cache != null) ? cache.get(SimpleKey.EMPTY) : null;
+		return (cached != null) ? (Collection<Vet>) cached.get() : null;
+	}
+
+	/**
+	 * Groups the rows of each vet into a detached {@link Vet}, holding one vet at a time.
+	 */
+	private static final class VetIterator implements Iterator<Vet> {
+
+		private final Iterator<VetRow> rows;
+
+		private VetRow next;
+
+		VetIterator(Iterator<VetRow> rows) {
+			this.rows = rows;
+			this.next = rows.hasNext() ? rows.next() : null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next != null;
+		}
+
+		@Override
+		public Vet next() {
+			if (this.next == null) {
+				throw new NoSuchElementException();
+			}
+			VetRow row = this.next;
+			Vet vet = new Vet();
+			vet.setId(row.id());
+			vet.setFirstName(row.firstName());
+			vet.setLastName(row.lastName());
+			while (row != null && row.id().equals(vet.getId())) {
+				if (row.specialtyId() != null) {
+					Specialty specialty = new Specialty();
+					specialty.setId(row.specialtyId());
+					specialty.setName(row.specialtyName());
+					vet.addSpecialty(specialty);
+				}
+				row = this.rows.hasNext() ? this.rows.next() : null;
+			}
+			this.next = row;
+			return vet;
+		}
+
+	}
+
+}
@@ -5,6 +5,8 @@ DROP TABLE visits IF EXISTS;
 DROP TABLE pets IF EXISTS;
 DROP TABLE types IF EXISTS;
 DROP TABLE owners IF EXISTS;
+DROP TABLE cache_events IF EXISTS;
+DROP SEQUENCE petclinic_seq IF EXISTS;
 
 
 CREATE TABLE vets (
@@ -39,7 +41,8 @@ CREATE TABLE owners (
   last_name  VARCHAR_IGNORECASE(30),
   address    VARCHAR(255),
   city       VARCHAR(80),
-  telephone  VARCHAR(20)
+  telephone  VARCHAR(20),
+  version    INTEGER DEFAULT 0 NOT NULL
 );
 CREATE INDEX owners_last_name ON owners (last_name);
 
@@ -61,4 +64,15 @@ CREATE TABLE visits (
   description VARCHAR(255)
 );
 ALTER TABLE visits ADD CONSTRAINT fk_visits_pets FOREIGN KEY (pet_id) REFERENCES pets (id);
-CREATE INDEX visits_pet_id ON visits (pet_id);
+CREATE INDEX visits_pet_id_visit_date ON visits (pet_id, visit_date);
+
+CREATE SEQUENCE petclinic_seq START WITH 1000 INCREMENT BY 50;
+
+CREATE TABLE cache_events (
+  id         BIGINT IDENTITY PRIMARY KEY,
+  cache_name VARCHAR(80) NOT NULL,
+  cache_key  VARCHAR(80),
+  origin     VARCHAR(36) NOT NULL,
+  created_at TIMESTAMP NOT NULL
+);
+CREATE INDEX cache_events_created_at ON cache_events (created_at);
@@ -32,6 +32,7 @@ CREATE TABLE IF NOT EXISTS owners (
   address VARCHAR(255),
   city VARCHAR(80),
   telephone VARCHAR(20),
+  version INT NOT NULL DEFAULT 0,
   INDEX(last_name)
 ) engine=InnoDB;
 
@@ -51,5 +52,21 @@ CREATE TABLE IF NOT EXISTS visits (
   pet_id INT(4) UNSIGNED,
   visit_date DATE,
   description VARCHAR(255),
+  INDEX(pet_id, visit_date),
   FOREIGN KEY (pet_id) REFERENCES pets(id)
 ) engine=InnoDB;
+
+-- MySQL has no sequences, Hibernate keeps the next block of ids in this table instead
+CREATE TABLE IF NOT EXISTS petclinic_seq (
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+INSERT INTO petclinic_seq SELECT 1000 FROM DUAL WHERE NOT EXISTS (SELECT * FROM petclinic_seq);
+
+CREATE TABLE IF NOT EXISTS cache_events (
+  id BIGINT UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  cache_name VARCHAR(80) NOT NULL,
+  cache_key VARCHAR(80),
+  origin VARCHAR(36) NOT NULL,
+  created_at TIMESTAMP NOT NULL,
+  INDEX(created_at)
+) engine=InnoDB;
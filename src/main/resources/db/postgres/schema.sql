@@ -29,7 +29,8 @@ CREATE TABLE IF NOT EXISTS owners (
   last_name  TEXT,
   address    TEXT,
   city       TEXT,
-  telephone  TEXT
+  telephone  TEXT,
+  version    INT DEFAULT 0 NOT NULL
 );
 CREATE INDEX ON owners (last_name);
 
@@ -49,4 +50,15 @@ CREATE TABLE IF NOT EXISTS visits (
   visit_date  DATE,
   description TEXT
 );
-CREATE INDEX ON visits (pet_id);
+CREATE INDEX ON visits (pet_id, visit_date);
+
+CREATE SEQUENCE IF NOT EXISTS petclinic_seq START WITH 1000 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS cache_events (
+  id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  cache_name TEXT NOT NULL,
+  cache_key  TEXT,
+  origin     TEXT NOT NULL,
+  created_at TIMESTAMP NOT NULL
+);
+CREATE INDEX ON cache_events (created_at);
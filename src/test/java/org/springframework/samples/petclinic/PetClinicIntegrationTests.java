@@ -18,6 +18,13 @@ package org.springframework.samples.petclinic;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
@@ -25,6 +32,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
@@ -56,6 +64,22 @@ public class PetClinicIntegrationTests {
 		assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
 	}
 
+	@Test
+	void testPagesAreCompressed() throws IOException {
+		RestTemplate template = builder.rootUri("http://localhost:" + port).build();
+		for (String page : List.of("/owners/1", "/vets.html")) {
+			ResponseEntity<byte[]> result = template.exchange(
+					RequestEntity.get(page).header(HttpHeaders.ACCEPT_ENCODING, "gzip").build(), byte[].class);
+			assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+			// the server does not compress responses with a strong tag
+			assertThat(result.getHeaders().getETag()).as(page).startsWith("W/");
+			assertThat(result.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).as(page).isEqualTo("gzip");
+			try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(result.getBody()))) {
+				assertThat(new String(body.readAllBytes(), StandardCharsets.UTF_8)).as(page).contains("</html>");
+			}
+		}
+	}
+
 	public static void main(String[] args) {
 		SpringApplication.run(PetClinicApplication.class, args);
 	}
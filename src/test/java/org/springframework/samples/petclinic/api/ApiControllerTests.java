@@ -0,0 +1,170 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.net.URI;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.jayway.jsonpath.JsonPath;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Tests of the {@link ApiController} against the sample data, including how many
+ * statements each response costs.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class ApiControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setup() {
+		this.statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		this.statistics.clear();
+	}
+
+	@Test
+	void shouldReturnOnlyRequestedFieldsOfIncludedResources() throws Exception {
+		this.mockMvc
+			.perform(get("/api/v1/owners/6").param("fields", "lastName")
+				.param("include", "pets.visits")
+				.param("fields[pets]", "name,type")
+				.param("fields[visits]", "description"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.data.id").value(6))
+			.andExpect(jsonPath("$.data.lastName").value("Coleman"))
+			.andExpect(jsonPath("$.data.address").doesNotExist())
+			.andExpect(jsonPath("$.data.pets.length()").value(2))
+			.andExpect(jsonPath("$.data.pets[0].name").value("Max"))
+			.andExpect(jsonPath("$.data.pets[0].type").value("cat"))
+			.andExpect(jsonPath("$.data.pets[0].birthDate").doesNotExist())
+			.andExpect(jsonPath("$.data.pets[0].visits.length()").value(2))
+			.andExpect(jsonPath("$.data.pets[0].visits[0].date").doesNotExist());
+		// the owner, its pets and their visits
+		assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(3);
+		assertThat(this.statistics.getEntityLoadCount()).isZero();
+	}
+
+	@Test
+	void shouldPageOwnersByLastName() throws Exception {
+		this.mockMvc.perform(get("/api/v1/owners").param("lastName", "Davis").param("fields", "firstName"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.data.length()").value(2))
+			.andExpect(jsonPath("$.data[0].firstName").value("Betty"))
+			.andExpect(jsonPath("$.data[0].pets").doesNotExist())
+			.andExpect(jsonPath("$.page.hasNext").value(false));
+		this.mockMvc.perform(get("/api/v1/owners").param("size", "3"))
+			.andExpect(jsonPath("$.data.length()").value(3))
+			.andExpect(jsonPath("$.page.hasNext").value(true));
+	}
+
+	@Test
+	void shouldLinkNextPageAfterLastOwner() throws Exception {
+		String next = JsonPath.read(this.mockMvc
+			.perform(get("/api/v1/owners").param("size", "3").param("fields", "lastName"))
+			.andExpect(jsonPath("$.data[*].id").value(contains(7, 6, 2)))
+			.andReturn()
+			.getResponse()
+			.getContentAsString(), "$.page.next");
+		assertThat(next).contains("size=3", "fields=lastName", "afterLastName=Davis", "afterId=2");
+		this.statistics.clear();
+		this.mockMvc.perform(get(URI.create(next)))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.data[*].id").value(contains(4, 8, 10)))
+			.andExpect(jsonPath("$.page.hasNext").value(true));
+		// a seek on (last name, id), with no count and no second look-up
+		assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(1);
+		this.mockMvc.perform(get("/api/v1/owners").param("afterLastName", "Rodriquez").param("afterId", "3"))
+			.andExpect(jsonPath("$.data[*].id").value(contains(9)))
+			.andExpect(jsonPath("$.page.hasNext").value(false))
+			.andExpect(jsonPath("$.page.next").doesNotExist());
+	}
+
+	@Test
+	void shouldMatchWildcardsInLastNameLiterally() throws Exception {
+		this.mockMvc.perform(get("/api/v1/owners").param("lastName", "%"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.data.length()").value(0));
+		this.mockMvc.perform(get("/api/v1/owners").param("lastName", "D_vis"))
+			.andExpect(jsonPath("$.data.length()").value(0));
+	}
+
+	@Test
+	void shouldListVisitsOfPetOfOwnerOnly() throws Exception {
+		this.mockMvc.perform(get("/api/v1/owners/6/pets/7/visits"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.data.length()").value(2))
+			.andExpect(jsonPath("$.data[0].description").value("spayed"));
+		this.mockMvc.perform(get("/api/v1/owners/1/pets/7/visits")).andExpect(status().isNotFound());
+		this.mockMvc.perform(get("/api/v1/owners/6/pets/999/visits")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void shouldListNoPetsOnlyOfExistingOwners() throws Exception {
+		this.mockMvc.perform(get("/api/v1/owners/6/pets"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.data.length()").value(2));
+		// the pets only, the owner exists since it has some
+		assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(1);
+		this.mockMvc.perform(get("/api/v1/owners/999/pets")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void shouldRejectUnknownFieldsAndOwners() throws Exception {
+		this.mockMvc.perform(get("/api/v1/owners/6").param("fields", "salary")).andExpect(status().isBadRequest());
+		this.mockMvc.perform(get("/api/v1/owners/6/pets").param("include", "owner"))
+			.andExpect(status().isBadRequest());
+		this.mockMvc.perform(get("/api/v1/owners/999")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void shouldBeSmallerThanOwnerDetailsPage() throws Exception {
+		int html = this.mockMvc.perform(get("/owners/6"))
+			.andExpect(status().isOk())
+			.andReturn()
+			.getResponse()
+			.getContentAsByteArray().length;
+		int json = this.mockMvc.perform(get("/api/v1/owners/6").param("include", "pets.visits"))
+			.andExpect(status().isOk())
+			.andReturn()
+			.getResponse()
+			.getContentAsByteArray().length;
+		assertThat(json).isLessThan(html / 4);
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.bulk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.samples.petclinic.bulk.OwnerRecord.PetRecord;
+import org.springframework.samples.petclinic.bulk.OwnerRecord.VisitRecord;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Integration test of {@link BulkExporter}, reading its output back with the readers
+ * used by the import.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import(BulkExporter.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class BulkExporterTests {
+
+	@Autowired
+	private BulkExporter exporter;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void shouldExportAllOwnersAsNdjson() throws IOException {
+		List<OwnerRecord> owners = exportAndRead(BulkFormat.NDJSON);
+
+		assertThat(owners).hasSize(10);
+		assertColeman(owners.get(5));
+	}
+
+	@Test
+	void shouldExportAllOwnersAsCsv() throws IOException {
+		List<OwnerRecord> owners = exportAndRead(BulkFormat.CSV);
+
+		assertThat(owners).hasSize(10);
+		assertColeman(owners.get(5));
+	}
+
+	@Test
+	void shouldReadBackCsvFieldsSpanningLines() throws IOException {
+		String description = "rabies shot\nand \"checkup\"";
+		PetRecord max = new PetRecord("Max", LocalDate.of(2012, 9, 4), "cat", null);
+		max.visits().add(new VisitRecord(LocalDate.of(2013, 1, 1), description));
+		max.visits().add(new VisitRecord(LocalDate.of(2013, 1, 4), "spayed"));
+		OwnerRecord owner = new OwnerRecord("Jean", "Coleman", "105 N. Lake St.", "Monona", "6085552654", null);
+		owner.pets().add(max);
+		StringWriter output = new StringWriter();
+		try (CsvOwnerRecordWriter writer = new CsvOwnerRecordWriter(output)) {
+			writer.write(owner);
+			writer.write(new OwnerRecord("Harold", "Davis", "563 Friendly St.", "Windsor", "6085553198", null));
+		}
+
+		BufferedReader input = new BufferedReader(new StringReader(output.toString()));
+		CsvOwnerRecordReader reader = new CsvOwnerRecordReader(input);
+		OwnerRecord coleman = reader.next();
+		assertThat(coleman.pets().get(0).visits()).extracting(VisitRecord::description)
+			.containsExactly(description, "spayed");
+		assertThat(reader.next().lastName()).isEqualTo("Davis");
+		assertThat(reader.line()).isEqualTo(5);
+		assertThat(reader.next()).isNull();
+	}
+
+	@Test
+	void shouldResumeReadingCsvAfterQuoteLeftOpen() throws IOException {
+		StringBuilder csv = new StringBuilder("Jean,\"Coleman,105 N. Lake St.,Monona,6085552654,,,,,\n");
+		for (int i = 1; csv.length() <= 2 * CsvOwnerRecordReader.MAX_ROW_LENGTH; i++) {
+			csv.append("Owner,Number").append(i).append(",1 Main St.,Madison,6085550000,,,,,\n");
+		}
+		csv.append("Harold,Davis,563 Friendly St.,Windsor,6085553198,,,,,\n");
+
+		CsvOwnerRecordReader reader = new CsvOwnerRecordReader(new BufferedReader(new StringReader(csv.toString())));
+		assertThatExceptionOfType(RecordException.class).isThrownBy(reader::next)
+			.satisfies(ex -> assertThat(ex.getLine()).isEqualTo(1));
+		// only the rows up to the limit are lost, the rest are read one by one
+		List<String> lastNames = new ArrayList<>();
+		OwnerRecord owner;
+		while ((owner = reader.next()) != null) {
+			lastNames.add(owner.lastName());
+		}
+		assertThat(lastNames).hasSizeGreaterThan(100).endsWith("Davis");
+	}
+
+	private void assertColeman(OwnerRecord coleman) {
+		assertThat(coleman.lastName()).isEqualTo("Coleman");
+		assertThat(coleman.pets()).extracting(PetRecord::name).containsExactly("Max", "Samantha");
+		assertThat(coleman.pets().get(0).type()).isEqualTo("cat");
+		assertThat(coleman.pets().get(0).visits()).hasSize(2);
+	}
+
+	private List<OwnerRecord> exportAndRead(BulkFormat format) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		int count = this.exporter.exportOwners(output, format);
+
+		BufferedReader input = new BufferedReader(new StringReader(output.toString(StandardCharsets.UTF_8)));
+		OwnerRecordReader reader = (format == BulkFormat.NDJSON) ? new NdjsonOwnerRecordReader(input, this.objectMapper)
+				: new CsvOwnerRecordReader(input);
+		List<OwnerRecord> owners = new ArrayList<>();
+		for (OwnerRecord owner = reader.next(); owner != null; owner = reader.next()) {
+			owners.add(owner);
+		}
+		assertThat(owners).hasSize(count);
+		return owners;
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.bulk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration test of {@link BulkImporter}. The importer manages its own transactions,
+ * so the tests commit and use distinct last names.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import(BulkImporter.class)
+@ImportAutoConfiguration({ JacksonAutoConfiguration.class, ValidationAutoConfiguration.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BulkImporterTests {
+
+	@Autowired
+	private BulkImporter importer;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Test
+	void shouldImportNdjsonAndRejectUnknownPetTypes() throws IOException {
+		String ndjson = """
+				{"firstName":"Ada","lastName":"Ndjsonson","address":"1 Main St.","city":"Madison","telephone":"6085550001","pets":[{"name":"Rex","birthDate":"2020-01-01","type":"dog","visits":[{"date":"2021-01-01","description":"rabies shot"},{"date":"2022-01-01","description":"checkup"}]}]}
+				{"firstName":"Bob","lastName":"Ndjsonson","address":"2 Main St.","city":"Madison","telephone":"6085550002","pets":[{"name":"Smaug","birthDate":"2020-01-01","type":"dragon"}]}
+				""";
+
+		ImportReport report = this.importer.importOwners(input(ndjson), BulkFormat.NDJSON);
+
+		assertThat(report.getImported()).isEqualTo(1);
+		assertThat(report.getRejected()).isEqualTo(1);
+		assertThat(report.getErrors()).singleElement().satisfies(error -> {
+			assertThat(error.line()).isEqualTo(2);
+			assertThat(error.message()).contains("dragon");
+		});
+		Pet rex = importedOwner("Ndjsonson").getPet("Rex");
+		assertThat(rex.getType().getName()).isEqualTo("dog");
+		assertThat(rex.getVisits()).hasSize(2);
+	}
+
+	@Test
+	void shouldGroupCsvRowsAndRejectMalformedRows() throws IOException {
+		String csv = Csv.HEADER + "\n" + """
+				Carl,Csvson,3 Main St.,Madison,6085550003,Rex,2020-01-01,dog,2021-01-01,rabies shot
+				Carl,Csvson,3 Main St.,Madison,6085550003,Rex,2020-01-01,dog,2022-01-01,"checkup, all ""fine""\"
+				Carl,Csvson,3 Main St.,Madison,6085550003,Tom,2019-05-05,cat,,
+				Dora,Csvson,4 Main St.,Madison,6085550004,Leo,yesterday,cat,,
+				""";
+
+		ImportReport report = this.importer.importOwners(input(csv), BulkFormat.CSV);
+
+		assertThat(report.getImported()).isEqualTo(1);
+		assertThat(report.getRejected()).isEqualTo(1);
+		assertThat(report.getErrors()).singleElement().extracting(ImportReport.ImportError::line).isEqualTo(5);
+		Owner carl = importedOwner("Csvson");
+		assertThat(carl.getPets()).extracting(Pet::getName).containsExactly("Rex", "Tom");
+		assertThat(carl.getPet("Rex").getVisits()).extracting("description")
+			.containsExactly("rabies shot", "checkup, all \"fine\"");
+		assertThat(carl.getPet("Tom").getVisits()).isEmpty();
+	}
+
+	private Owner importedOwner(String lastName) {
+		Page<Owner> page = this.owners.findByLastNameStartingWith(lastName, Pageable.unpaged());
+		assertThat(page.getContent()).hasSize(1);
+		return this.owners.findWithHistoryById(page.getContent().get(0).getId()).orElseThrow();
+	}
+
+	private static ByteArrayInputStream input(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
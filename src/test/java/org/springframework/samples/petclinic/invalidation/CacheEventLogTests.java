@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.invalidation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.samples.petclinic.PetClinicApplication;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerSearchIndex;
+import org.springframework.samples.petclinic.owner.OwnerSummary;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Runs two application instances against one H2 database, each with its own caches,
+ * and checks that a change made on one clears the caches of the other, and its own.
+ */
+class CacheEventLogTests {
+
+	private ConfigurableApplicationContext nodeA;
+
+	private ConfigurableApplicationContext nodeB;
+
+	@BeforeEach
+	void startNodes() {
+		this.nodeA = start("node-a", "always");
+		this.nodeB = start("node-b", "never");
+	}
+
+	@AfterEach
+	void stopNodes() {
+		this.nodeB.close();
+		this.nodeA.close();
+	}
+
+	private ConfigurableApplicationContext start(String node, String initializeDatabase) {
+		SpringApplication application = new SpringApplication(PetClinicApplication.class);
+		application.setWebApplicationType(WebApplicationType.NONE);
+		return application.run("--spring.datasource.url=jdbc:h2:mem:cacheevents;DB_CLOSE_DELAY=-1",
+				"--spring.sql.init.mode=" + initializeDatabase,
+				"--spring.cache.jcache.config=classpath:cache-events/" + node + ".conf",
+				"--petclinic.cache.events.poll-interval=1h", "--logging.level.root=WARN");
+	}
+
+	@Test
+	void changeOnOneNodeClearsTheCachesOfTheOther() {
+		VetRepository vetsA = this.nodeA.getBean(VetRepository.class);
+		VetRepository vetsB = this.nodeB.getBean(VetRepository.class);
+		CacheEventLog eventsA = this.nodeA.getBean(CacheEventLog.class);
+		eventsA.poll();
+		assertThat(lastNames(vetsA.findAll())).doesNotContain("Changed");
+
+		Vet vet = vetsB.findAll().iterator().next();
+		vet.setLastName("Changed");
+		vetsB.save(vet);
+
+		// node A still serves its cached vets until it has polled the events
+		assertThat(lastNames(vetsA.findAll())).doesNotContain("Changed");
+		eventsA.poll();
+		assertThat(lastNames(vetsA.findAll())).contains("Changed");
+	}
+
+	@Test
+	void changeOnOneNodeIsReindexedByTheOther() {
+		OwnerSearchIndex indexA = this.nodeA.getBean(OwnerSearchIndex.class);
+		CacheEventLog eventsA = this.nodeA.getBean(CacheEventLog.class);
+		eventsA.poll();
+		OwnerSearchIndex.Query query = new OwnerSearchIndex.Query(null, "Replicated", null, null);
+
+		OwnerRepository ownersB = this.nodeB.getBean(OwnerRepository.class);
+		Owner owner = ownersB.findById(1).orElseThrow();
+		owner.setLastName("Replicated");
+		ownersB.save(owner);
+
+		assertThat(indexA.search(query, 10)).isEmpty();
+		eventsA.poll();
+		assertThat(indexA.search(query, 10)).extracting(OwnerSummary::getId).containsExactly(1);
+	}
+
+	@Test
+	void changeBypassingCacheEvictClearsTheLocalCachesOnCommit() {
+		OwnerRepository owners = this.nodeA.getBean(OwnerRepository.class);
+		assertThat(owners.countByLastNameStartingWithUpTo("Bypass", 10)).isZero();
+
+		Owner owner = new Owner();
+		owner.setFirstName("Direct");
+		owner.setLastName("Bypass");
+		owner.setAddress("1 Main St.");
+		owner.setCity("Madison");
+		owner.setTelephone("6085550000");
+		EntityManager entityManager = this.nodeA.getBean(EntityManager.class);
+		new TransactionTemplate(this.nodeA.getBean(PlatformTransactionManager.class))
+			.executeWithoutResult(status -> entityManager.persist(owner));
+
+		// no poll: the writing instance applies its own events when the transaction commits
+		assertThat(owners.countByLastNameStartingWithUpTo("Bypass", 10)).isOne();
+	}
+
+	private static List<String> lastNames(Collection<Vet> vets) {
+		return vets.stream().map(Vet::getLastName).toList();
+	}
+
+}
@@ -23,27 +23,43 @@ import org.junit.jupiter.api.condition.DisabledInNativeImage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Window;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.matchesPattern;
 import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -55,7 +71,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * @author Colin But
  * @author Wick Dynex
  */
-@WebMvcTest(OwnerController.class)
+@WebMvcTest(value = OwnerController.class,
+		includeFilters = @ComponentScan.Filter(value = OwnerLoader.class, type = FilterType.ASSIGNABLE_TYPE))
 @DisabledInNativeImage
 @DisabledInAotMode
 class OwnerControllerTests {
@@ -68,6 +85,12 @@ class OwnerControllerTests {
 	@MockBean
 	private OwnerRepository owners;
 
+	@MockBean
+	private VisitRepository visits;
+
+	@MockBean
+	private OwnerSearchIndex searchIndex;
+
 	private Owner george() {
 		Owner george = new Owner();
 		george.setId(TEST_OWNER_ID);
@@ -76,6 +99,7 @@ class OwnerControllerTests {
 		george.setAddress("110 W. Liberty St.");
 		george.setCity("Madison");
 		george.setTelephone("6085551023");
+		george.setVersion(3);
 		Pet max = new Pet();
 		PetType dog = new PetType();
 		dog.setName("dog");
@@ -91,15 +115,18 @@ class OwnerControllerTests {
 	void setup() {
 
 		Owner george = george();
-		given(this.owners.findByLastNameStartingWith(eq("Franklin"), any(Pageable.class)))
+		given(this.owners.findByLastNameStartingWith(eq("Franklin"), any(Pageable.class), any()))
 			.willReturn(new PageImpl<>(Lists.newArrayList(george)));
 
 		given(this.owners.findAll(any(Pageable.class))).willReturn(new PageImpl<>(Lists.newArrayList(george)));
 
 		given(this.owners.findById(TEST_OWNER_ID)).willReturn(Optional.of(george));
+		given(this.owners.findWithPetsById(TEST_OWNER_ID)).willReturn(Optional.of(george));
 		Visit visit = new Visit();
 		visit.setDate(LocalDate.now());
 		george.getPet("Max").getVisits().add(visit);
+		given(this.visits.findRecentByOwnerId(TEST_OWNER_ID, 5))
+			.willReturn(Map.of(george.getPet("Max").getId(), new SliceImpl<>(List.of(visit))));
 
 	}
 
@@ -144,14 +171,24 @@ class OwnerControllerTests {
 	@Test
 	void testProcessFindFormSuccess() throws Exception {
 		Page<Owner> tasks = new PageImpl<>(Lists.newArrayList(george(), new Owner()));
-		when(this.owners.findByLastNameStartingWith(anyString(), any(Pageable.class))).thenReturn(tasks);
+		when(this.owners.findByLastNameStartingWith(anyString(), any(Pageable.class), any())).thenReturn(tasks);
 		mockMvc.perform(get("/owners?page=1")).andExpect(status().isOk()).andExpect(view().name("owners/ownersList"));
 	}
 
+	@Test
+	void testProcessFindFormWithEstimatedTotal() throws Exception {
+		Page<Owner> tasks = new PageImpl<>(Lists.newArrayList(george(), new Owner()), PageRequest.of(0, 2), 1001);
+		when(this.owners.findByLastNameStartingWith(anyString(), any(Pageable.class), any())).thenReturn(tasks);
+		mockMvc.perform(get("/owners?page=1"))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("estimatedTotal", true))
+			.andExpect(view().name("owners/ownersList"));
+	}
+
 	@Test
 	void testProcessFindFormByLastName() throws Exception {
 		Page<Owner> tasks = new PageImpl<>(Lists.newArrayList(george()));
-		when(this.owners.findByLastNameStartingWith(eq("Franklin"), any(Pageable.class))).thenReturn(tasks);
+		when(this.owners.findByLastNameStartingWith(eq("Franklin"), any(Pageable.class), any())).thenReturn(tasks);
 		mockMvc.perform(get("/owners?page=1").param("lastName", "Franklin"))
 			.andExpect(status().is3xxRedirection())
 			.andExpect(view().name("redirect:/owners/" + TEST_OWNER_ID));
@@ -160,7 +197,8 @@ class OwnerControllerTests {
 	@Test
 	void testProcessFindFormNoOwnersFound() throws Exception {
 		Page<Owner> tasks = new PageImpl<>(Lists.newArrayList());
-		when(this.owners.findByLastNameStartingWith(eq("Unknown Surname"), any(Pageable.class))).thenReturn(tasks);
+		when(this.owners.findByLastNameStartingWith(eq("Unknown Surname"), any(Pageable.class), any()))
+			.thenReturn(tasks);
 		mockMvc.perform(get("/owners?page=1").param("lastName", "Unknown Surname"))
 			.andExpect(status().isOk())
 			.andExpect(model().attributeHasFieldErrors("owner", "lastName"))
@@ -169,6 +207,53 @@ class OwnerControllerTests {
 
 	}
 
+	@Test
+	void testProcessFindFormByCityUsesIndex() throws Exception {
+		OwnerSummary madison = OwnerSummary.of(george(), Map.of());
+		OwnerSummary other = new OwnerSummary(2, "Betty", "Davis", "638 Cardinal Ave.", "Madison", "6085551749",
+				Map.of());
+		given(this.searchIndex.search(eq(new OwnerSearchIndex.Query("", "", "madison", "")), anyInt()))
+			.willReturn(List.of(other, madison));
+		mockMvc
+			.perform(get("/owners").param("lastName", "").param("firstName", "").param("city", "madison")
+				.param("telephone", ""))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("listOwners", hasSize(2)))
+			.andExpect(view().name("owners/ownersList"));
+		verify(this.owners, never()).findByLastNameStartingWith(anyString(), any(Pageable.class), any());
+	}
+
+	@Test
+	void testProcessFindFormByTelephoneNotFound() throws Exception {
+		mockMvc.perform(get("/owners").param("telephone", "000"))
+			.andExpect(status().isOk())
+			.andExpect(model().attributeHasFieldErrorCode("owner", "lastName", "notFound"))
+			.andExpect(view().name("owners/findOwners"));
+	}
+
+	@Test
+	void testSuggestOwners() throws Exception {
+		given(this.searchIndex.suggest("fra", 10))
+			.willReturn(List.of(new OwnerSearchIndex.Suggestion(TEST_OWNER_ID, "Franklin, George", List.of("Max"))));
+		mockMvc.perform(get("/owners/suggestions").param("q", "fra"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[0].id").value(TEST_OWNER_ID))
+			.andExpect(jsonPath("$[0].name").value("Franklin, George"))
+			.andExpect(jsonPath("$[0].pets[0]").value("Max"));
+	}
+
+	@Test
+	void testProcessFindFormAfterCursor() throws Exception {
+		Window<Owner> window = Window.from(Lists.newArrayList(george()), ScrollPosition::offset, true);
+		when(this.owners.scrollByLastNameStartingWith(eq("Franklin"), any(ScrollPosition.class))).thenReturn(window);
+		mockMvc
+			.perform(get("/owners").param("lastName", "Franklin").param("afterLastName", "Davis").param("afterId", "4"))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("listOwners", hasSize(1)))
+			.andExpect(model().attributeExists("nextOwner"))
+			.andExpect(view().name("owners/ownersList"));
+	}
+
 	@Test
 	void testInitUpdateOwnerForm() throws Exception {
 		mockMvc.perform(get("/owners/{ownerId}/edit", TEST_OWNER_ID))
@@ -180,6 +265,8 @@ class OwnerControllerTests {
 			.andExpect(model().attribute("owner", hasProperty("city", is("Madison"))))
 			.andExpect(model().attribute("owner", hasProperty("telephone", is("6085551023"))))
 			.andExpect(view().name("owners/createOrUpdateOwnerForm"));
+		// the form does not show the pets
+		verify(this.owners, never()).findWithPetsById(TEST_OWNER_ID);
 	}
 
 	@Test
@@ -201,6 +288,22 @@ class OwnerControllerTests {
 			.andExpect(view().name("redirect:/owners/{ownerId}"));
 	}
 
+	@Test
+	void testProcessUpdateOwnerFormConcurrentlyModified() throws Exception {
+		given(this.owners.save(any(Owner.class)))
+			.willThrow(new ObjectOptimisticLockingFailureException(Owner.class, TEST_OWNER_ID));
+		mockMvc
+			.perform(post("/owners/{ownerId}/edit", TEST_OWNER_ID).param("firstName", "Joe")
+				.param("lastName", "Bloggs")
+				.param("address", "123 Caramel Street")
+				.param("city", "London")
+				.param("telephone", "1616291589")
+				.param("version", "2"))
+			.andExpect(status().is3xxRedirection())
+			.andExpect(flash().attributeExists("error"))
+			.andExpect(view().name("redirect:/owners/{ownerId}/edit"));
+	}
+
 	@Test
 	void testProcessUpdateOwnerFormHasErrors() throws Exception {
 		mockMvc
@@ -227,7 +330,29 @@ class OwnerControllerTests {
 			.andExpect(model().attribute("owner", hasProperty("pets", not(empty()))))
 			.andExpect(model().attribute("owner",
 					hasProperty("pets", hasItem(hasProperty("visits", hasSize(greaterThan(0)))))))
+			.andExpect(model().attribute("recentVisits", hasEntry(is(1), hasProperty("content", hasSize(1)))))
 			.andExpect(view().name("owners/ownerDetails"));
+		// loaded once, with its pets, by the handler only
+		verify(this.owners).findWithPetsById(TEST_OWNER_ID);
+		verify(this.owners, never()).findById(TEST_OWNER_ID);
+	}
+
+	@Test
+	void testShowOwnerNotModified() throws Exception {
+		String eTag = mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID))
+			.andExpect(status().isOk())
+			.andExpect(header().string("ETag", matchesPattern("W/\"owner-1-v3-[0-9a-f]+\"")))
+			.andReturn()
+			.getResponse()
+			.getHeader("ETag");
+		mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID).header("If-None-Match", eTag))
+			.andExpect(status().isNotModified())
+			.andExpect(content().string(""));
+		// a page cached before the application was restarted links resources that may be gone
+		mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID).header("If-None-Match", "W/\"owner-1-v3\""))
+			.andExpect(status().isOk());
+		// the visits are only queried for the pages that were rendered
+		verify(this.visits, times(2)).findRecentByOwnerId(eq(TEST_OWNER_ID), anyInt());
 	}
 
 	@Test
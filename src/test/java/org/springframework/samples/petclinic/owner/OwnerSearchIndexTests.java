@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.owner.OwnerSearchIndex.Query;
+
+/**
+ * Test class for {@link OwnerSearchIndex}
+ */
+class OwnerSearchIndexTests {
+
+	private OwnerSearchIndex index;
+
+	@BeforeEach
+	void setup() {
+		this.index = new OwnerSearchIndex(mock(OwnerRepository.class));
+		this.index.put(new OwnerSummary(1, "George", "Franklin", "110 W. Liberty St.", "Madison", "6085551023",
+				Map.of(1, "Leo")));
+		this.index.put(new OwnerSummary(2, "Betty", "Davis", "638 Cardinal Ave.", "Sun Prairie", "6085551749",
+				Map.of(2, "Basil")));
+		this.index.put(new OwnerSummary(4, "Harold", "Davis", "563 Friendly St.", "Windsor", "6085553198",
+				Map.of()));
+		this.index.put(new OwnerSummary(5, "Peter", "McTavish", "2387 S. Fair Way", "Madison", "6085552765",
+				Map.of()));
+	}
+
+	private List<Integer> ids(Query query) {
+		return this.index.search(query, 10).stream().map(OwnerSummary::getId).toList();
+	}
+
+	@Test
+	void shouldFindByNamePrefixIgnoringCase() {
+		assertThat(ids(new Query(null, "da", null, null))).containsExactly(2, 4);
+		assertThat(ids(new Query("har", "Davis", null, null))).containsExactly(4);
+		assertThat(ids(new Query("x", null, null, null))).isEmpty();
+	}
+
+	@Test
+	void shouldFindByCityWords() {
+		assertThat(ids(new Query(null, null, "MADISON", null))).containsExactly(1, 5);
+		assertThat(ids(new Query(null, null, "prairie", null))).containsExactly(2);
+		assertThat(ids(new Query(null, null, "sun city", null))).isEmpty();
+	}
+
+	@Test
+	void shouldFindByTelephoneIgnoringFormatting() {
+		assertThat(ids(new Query(null, null, null, "(608) 555-3198"))).containsExactly(4);
+		assertThat(ids(new Query(null, "Franklin", null, "6085553198"))).isEmpty();
+	}
+
+	@Test
+	void shouldOrderByNameAndLimit() {
+		assertThat(ids(new Query(null, null, null, null))).containsExactly(2, 4, 1, 5);
+		assertThat(this.index.search(new Query(null, null, null, null), 2)).hasSize(2);
+	}
+
+	@Test
+	void shouldReindexChangedOwner() {
+		this.index.putKeepingPets(new OwnerSummary(1, "George", "Franklin", "1 Main St.", "Monona", "6085551023",
+				Map.of()));
+		assertThat(ids(new Query(null, null, "madison", null))).containsExactly(5);
+		List<OwnerSummary> found = this.index.search(new Query(null, null, "monona", null), 10);
+		assertThat(found).singleElement().satisfies(owner -> assertThat(owner.getPets()).containsExactly("Leo"));
+	}
+
+	@Test
+	void shouldSuggestByLastThenFirstName() {
+		assertThat(this.index.suggest("davis", 10)).extracting(OwnerSearchIndex.Suggestion::name)
+			.containsExactly("Davis, Betty", "Davis, Harold");
+		assertThat(this.index.suggest(" Davis, h", 10)).singleElement()
+			.satisfies(suggestion -> assertThat(suggestion.id()).isEqualTo(4));
+		assertThat(this.index.suggest("fr", 10)).singleElement()
+			.satisfies(suggestion -> assertThat(suggestion.pets()).containsExactly("Leo"));
+		assertThat(this.index.suggest("d", 1)).hasSize(1);
+		assertThat(this.index.suggest("e", 10)).isEmpty();
+		assertThat(this.index.suggest(" ", 10)).isEmpty();
+	}
+
+	@Test
+	void shouldTrackPetsAndRemovedOwners() {
+		this.index.putPet(4, 3, "Rosy");
+		this.index.putPet(2, 2, null);
+		assertThat(this.index.search(new Query("Harold", null, null, null), 10).get(0).getPets())
+			.containsExactly("Rosy");
+		assertThat(this.index.search(new Query("Betty", null, null, null), 10).get(0).getPets()).isEmpty();
+		this.index.remove(4);
+		assertThat(ids(new Query(null, "Davis", null, null))).containsExactly(2);
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Asserts how many SQL statements each owner-related endpoint issues, so that the entity
+ * graphs chosen by the controllers do not regress into N+1 loading.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class OwnerStatementCountTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setup() {
+		this.statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	private long statementsFor(MockHttpServletRequestBuilder request) throws Exception {
+		this.statistics.clear();
+		this.mockMvc.perform(request).andExpect(status().isOk());
+		return this.statistics.getPrepareStatementCount();
+	}
+
+	@Test
+	void searchLoadsPageAndPetNamesWithoutCount() throws Exception {
+		// ids of the first page + owners with their pets; the count is skipped because
+		// the first page is not full
+		assertThat(statementsFor(get("/owners").param("lastName", "Davis"))).isEqualTo(2);
+	}
+
+	@Test
+	void ownerDetailsLoadsRecentVisitsInOneStatement() throws Exception {
+		// the owner with pets and types, loaded by the handler only + the recent visits
+		// of all pets
+		assertThat(statementsFor(get("/owners/{ownerId}", 6))).isEqualTo(2);
+	}
+
+	@Test
+	void olderVisitsLoadOnePage() throws Exception {
+		// the ownership check of the pet + the page of visits, the owner is not loaded
+		assertThat(statementsFor(get("/owners/{ownerId}/pets/{petId}/visits", 6, 7).param("page", "1")))
+			.isEqualTo(2);
+	}
+
+	@Test
+	void editOwnerFormLoadsOwnerInOneStatement() throws Exception {
+		// the owner alone, the form does not show the pets
+		assertThat(statementsFor(get("/owners/{ownerId}/edit", 6))).isEqualTo(1);
+	}
+
+	@Test
+	void newPetFormLoadsOwnerWithPetsInOneStatement() throws Exception {
+		// the pet types come from the catalog
+		assertThat(statementsFor(get("/owners/{ownerId}/pets/new", 6))).isEqualTo(1);
+	}
+
+	@Test
+	void rejectedNewPetLoadsOwnerWithPetsInOneStatement() throws Exception {
+		// the duplicate name is found in the pets of the owner model attribute
+		assertThat(statementsFor(post("/owners/{ownerId}/pets/new", 6).param("name", "Max")
+			.param("type", "cat")
+			.param("birthDate", "2015-02-12"))).isEqualTo(1);
+	}
+
+	@Test
+	void rejectedPetEditLoadsOwnerWithPetsInOneStatement() throws Exception {
+		assertThat(statementsFor(post("/owners/{ownerId}/pets/{petId}/edit", 6, 8).param("id", "8")
+			.param("name", "Samantha")
+			.param("type", "cat")
+			.param("birthDate", "2015-02-12"))).isEqualTo(1);
+	}
+
+	@Test
+	void newVisitFormLoadsHistoryInOneStatement() throws Exception {
+		assertThat(statementsFor(get("/owners/{ownerId}/pets/{petId}/visits/new", 6, 7))).isEqualTo(1);
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the latency distribution of owner suggestions under concurrent keystrokes,
+ * typing one to four letters of random last names. The p99 reported by the sample mode
+ * is expected to stay well below 5 ms.
+ * <p>
+ * Run with <code>./mvnw test-compile exec:java
+ * -Dexec.mainClass=org.springframework.samples.petclinic.owner.OwnerSuggestBenchmark
+ * -Dexec.classpathScope=test</code>, or from the IDE; add <code>-prof gc</code> to the
+ * options to see the allocation per keystroke.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OwnerSuggestBenchmark {
+
+	private static final String[] SYLLABLES = { "ba", "co", "da", "es", "fr", "ge", "ha", "jo", "ka", "le", "mc",
+			"no", "pe", "ri", "sa", "to", "wi" };
+
+	@Param({ "10000", "100000" })
+	public int owners;
+
+	private OwnerSearchIndex index;
+
+	private String[] prefixes;
+
+	@Setup
+	public void index() {
+		this.index = new OwnerSearchIndex(mock(OwnerRepository.class));
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		this.prefixes = new String[1024];
+		for (int id = 1; id <= this.owners; id++) {
+			String lastName = name(random, 3);
+			this.index.put(new OwnerSummary(id, name(random, 2), lastName, id + " Main St.", "Madison", "6085550000",
+					Map.of(id, name(random, 2))));
+			if (id <= this.prefixes.length) {
+				this.prefixes[id - 1] = lastName.substring(0, 1 + random.nextInt(4));
+			}
+		}
+	}
+
+	private static String name(ThreadLocalRandom random, int syllables) {
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < syllables; i++) {
+			name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+		}
+		name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+		return name.toString();
+	}
+
+	@Benchmark
+	public List<OwnerSearchIndex.Suggestion> suggest() {
+		String prefix = this.prefixes[ThreadLocalRandom.current().nextInt(this.prefixes.length)];
+		return this.index.suggest(prefix, 10);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(OwnerSuggestBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
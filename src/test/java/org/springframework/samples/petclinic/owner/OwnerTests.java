@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the pet lookups of {@link Owner}
+ */
+class OwnerTests {
+
+	private static Pet pet(Integer id, String name) {
+		Pet pet = new Pet();
+		pet.setId(id);
+		pet.setName(name);
+		return pet;
+	}
+
+	@Test
+	void shouldFindPetsByIdAndNameIgnoringCase() {
+		Owner owner = new Owner();
+		Pet leo = pet(1, "Leo");
+		Pet basil = pet(2, "Basil");
+		owner.getPets().add(leo);
+		owner.getPets().add(basil);
+		assertThat(owner.getPet(2)).isSameAs(basil);
+		assertThat(owner.getPet(3)).isNull();
+		assertThat(owner.getPet("leo")).isSameAs(leo);
+		assertThat(owner.getPet("Max")).isNull();
+	}
+
+	@Test
+	void shouldFollowAddedAndRenamedPets() {
+		Owner owner = new Owner();
+		Pet leo = pet(1, "Leo");
+		owner.getPets().add(leo);
+		assertThat(owner.getPet("Leo")).isSameAs(leo);
+
+		Pet max = new Pet();
+		owner.addPet(max);
+		max.setName("Max");
+		assertThat(owner.getPet("max")).isSameAs(max);
+		assertThat(owner.getPet("max", true)).isNull();
+
+		leo.setName("Rosy");
+		assertThat(owner.getPet("Leo")).isNull();
+		assertThat(owner.getPet("rosy")).isSameAs(leo);
+	}
+
+	@Test
+	void shouldFindPetOnceSaved() {
+		Owner owner = new Owner();
+		Pet max = new Pet();
+		max.setName("Max");
+		owner.addPet(max);
+		assertThat(owner.getPet("Max", true)).isNull();
+		// as assigned by Hibernate when the owner is saved
+		max.setId(8);
+		assertThat(owner.getPet(8)).isSameAs(max);
+		assertThat(owner.getPet("Max", true)).isSameAs(max);
+	}
+
+	@Test
+	void shouldMatchNamesAsEqualsIgnoreCaseDoes() {
+		Owner owner = new Owner();
+		Pet ipek = pet(1, "\u0130pek");
+		Pet irmak = pet(2, "\u0131rmak");
+		owner.getPets().add(ipek);
+		owner.getPets().add(irmak);
+		assertThat(owner.getPet("ipek")).isSameAs(ipek);
+		assertThat(owner.getPet("IRMAK")).isSameAs(irmak);
+	}
+
+	@Test
+	void shouldFollowPetsReplacedWithoutChangingTheCount() {
+		Owner owner = new Owner();
+		Pet leo = pet(1, "Leo");
+		owner.getPets().add(leo);
+		assertThat(owner.getPet("Leo")).isSameAs(leo);
+
+		Pet basil = pet(2, "Basil");
+		owner.getPets().remove(leo);
+		owner.getPets().add(basil);
+		assertThat(owner.getPet("Leo")).isNull();
+		assertThat(owner.getPet(1)).isNull();
+		assertThat(owner.getPet("basil")).isSameAs(basil);
+
+		owner.getPets().set(0, leo);
+		assertThat(owner.getPet(2)).isNull();
+		assertThat(owner.getPet(1)).isSameAs(leo);
+	}
+
+}
@@ -16,9 +16,17 @@
 
 package org.springframework.samples.petclinic.owner;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
@@ -29,9 +37,15 @@ import org.junit.jupiter.api.condition.DisabledInNativeImage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -40,7 +54,8 @@ import java.util.Optional;
  * @author Colin But
  * @author Wick Dynex
  */
-@WebMvcTest(VisitController.class)
+@WebMvcTest(value = VisitController.class,
+		includeFilters = @ComponentScan.Filter(value = OwnerLoader.class, type = FilterType.ASSIGNABLE_TYPE))
 @DisabledInNativeImage
 @DisabledInAotMode
 class VisitControllerTests {
@@ -55,13 +70,21 @@ class VisitControllerTests {
 	@MockBean
 	private OwnerRepository owners;
 
+	@MockBean
+	private VisitRepository visits;
+
 	@BeforeEach
 	void init() {
 		Owner owner = new Owner();
 		Pet pet = new Pet();
 		owner.addPet(pet);
 		pet.setId(TEST_PET_ID);
-		given(this.owners.findById(TEST_OWNER_ID)).willReturn(Optional.of(owner));
+		given(this.owners.findWithHistoryById(TEST_OWNER_ID)).willReturn(Optional.of(owner));
+		given(this.visits.addVisit(eq(TEST_OWNER_ID), eq(TEST_PET_ID), any(Visit.class)))
+			.willAnswer(invocation -> Optional.of(invocation.getArgument(2)));
+		given(this.visits.existsPetOfOwner(TEST_OWNER_ID, TEST_PET_ID)).willReturn(true);
+		given(this.visits.findByOwnerIdAndPetId(eq(TEST_OWNER_ID), eq(TEST_PET_ID), any(Pageable.class)))
+			.willReturn(new SliceImpl<>(List.of(new Visit()), PageRequest.of(1, 5), true));
 	}
 
 	@Test
@@ -71,6 +94,18 @@ class VisitControllerTests {
 			.andExpect(view().name("pets/createOrUpdateVisitForm"));
 	}
 
+	@Test
+	void testInitNewVisitFormUnknownOwner() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/visits/new", 99, TEST_PET_ID))
+			.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void testInitNewVisitFormUnknownPet() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/visits/new", TEST_OWNER_ID, 99))
+			.andExpect(status().isNotFound());
+	}
+
 	@Test
 	void testProcessNewVisitFormSuccess() throws Exception {
 		mockMvc
@@ -79,6 +114,16 @@ class VisitControllerTests {
 				.param("description", "Visit Description"))
 			.andExpect(status().is3xxRedirection())
 			.andExpect(view().name("redirect:/owners/{ownerId}"));
+		// booked directly, without loading the owner
+		verify(this.owners, never()).findWithHistoryById(TEST_OWNER_ID);
+	}
+
+	@Test
+	void testProcessNewVisitFormUnknownPet() throws Exception {
+		mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", TEST_OWNER_ID, 99).param("name", "George")
+				.param("description", "Visit Description"))
+			.andExpect(status().isNotFound());
 	}
 
 	@Test
@@ -91,4 +136,22 @@ class VisitControllerTests {
 			.andExpect(view().name("pets/createOrUpdateVisitForm"));
 	}
 
+	@Test
+	void testShowOlderVisits() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/visits", TEST_OWNER_ID, TEST_PET_ID).param("page", "1"))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("visits", hasProperty("content", hasSize(1))))
+			.andExpect(content().string(containsString("page=2")))
+			.andExpect(view().name("owners/visitRows :: visitRows"));
+		// only the ownership of the pet is checked
+		verify(this.owners, never()).findWithPetsById(TEST_OWNER_ID);
+	}
+
+	@Test
+	void testShowOlderVisitsOfPetOfOtherOwner() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/visits", 2, TEST_PET_ID))
+			.andExpect(status().isNotFound());
+		verify(this.visits, never()).findByOwnerIdAndPetId(eq(2), eq(TEST_PET_ID), any(Pageable.class));
+	}
+
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.samples.petclinic.PetClinicApplication;
+
+/**
+ * Measures how many visits per second can be created by saving new owners whose pet has
+ * a batch of visits, with ids from the pooled sequence (inserts are JDBC-batched) and
+ * from the identity columns (one round trip per row).
+ * <p>
+ * Run with <code>./mvnw test-compile exec:java
+ * -Dexec.mainClass=org.springframework.samples.petclinic.owner.VisitInsertBenchmark
+ * -Dexec.classpathScope=test</code>, or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class VisitInsertBenchmark {
+
+	private static final int VISITS_PER_OWNER = 100;
+
+	@Param({ "sequence", "identity" })
+	public String idGeneration;
+
+	private ConfigurableApplicationContext context;
+
+	private OwnerRepository owners;
+
+	private PetType dog;
+
+	@Setup
+	public void start() {
+		SpringApplication application = new SpringApplication(PetClinicApplication.class);
+		application.setWebApplicationType(WebApplicationType.NONE);
+		if ("identity".equals(this.idGeneration)) {
+			application.setAdditionalProfiles("identity");
+		}
+		this.context = application.run("--spring.datasource.url=jdbc:h2:mem:" + this.idGeneration,
+				"--logging.level.root=WARN");
+		this.owners = this.context.getBean(OwnerRepository.class);
+		this.dog = this.owners.findPetTypes()
+			.stream()
+			.filter(type -> "dog".equals(type.getName()))
+			.findFirst()
+			.orElseThrow();
+	}
+
+	@TearDown
+	public void stop() {
+		this.context.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VISITS_PER_OWNER)
+	public Owner createVisits() {
+		Owner owner = new Owner();
+		owner.setFirstName("Bench");
+		owner.setLastName("Mark");
+		owner.setAddress("1 Load Street");
+		owner.setCity("Throughput");
+		owner.setTelephone("0123456789");
+		Pet pet = new Pet();
+		pet.setName("Rex");
+		pet.setType(this.dog);
+		pet.setBirthDate(LocalDate.of(2020, 1, 1));
+		owner.addPet(pet);
+		for (int i = 0; i < VISITS_PER_OWNER; i++) {
+			Visit visit = new Visit();
+			visit.setDescription("checkup " + i);
+			pet.addVisit(visit);
+		}
+		return this.owners.save(owner);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(VisitInsertBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -17,27 +17,40 @@
 package org.springframework.samples.petclinic.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.samples.petclinic.owner.Owner;
 import org.springframework.samples.petclinic.owner.OwnerRepository;
 import org.springframework.samples.petclinic.owner.Pet;
 import org.springframework.samples.petclinic.owner.PetType;
 import org.springframework.samples.petclinic.owner.Visit;
+import org.springframework.samples.petclinic.owner.VisitRepository;
 import org.springframework.samples.petclinic.vet.Vet;
 import org.springframework.samples.petclinic.vet.VetRepository;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
 /**
  * Integration test of the Service and the Repository layer.
  * <p>
@@ -78,7 +91,16 @@ class ClinicServiceTests {
 	@Autowired
 	protected VetRepository vets;
 
-	Pageable pageable;
+	@Autowired
+	protected VisitRepository visits;
+
+	@Autowired
+	protected EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	protected EntityManager entityManager;
+
+	Pageable pageable = Pageable.unpaged();
 
 	@Test
 	void shouldFindOwnersByLastName() {
@@ -89,6 +111,29 @@ class ClinicServiceTests {
 		assertThat(owners).isEmpty();
 	}
 
+	@Test
+	void shouldMatchWildcardsInLastNameLiterally() {
+		assertThat(this.owners.findByLastNameStartingWith("%", pageable)).isEmpty();
+		assertThat(this.owners.findByLastNameStartingWith("D_vis", pageable)).isEmpty();
+		assertThat(this.owners.countByLastNameStartingWithUpTo("%", 100)).isZero();
+		assertThat(this.owners.countByLastNameStartingWithUpTo("Dav", 100)).isEqualTo(2);
+	}
+
+	@Test
+	void shouldSeekOwnersByLastName() {
+		Window<Owner> first = this.owners.scrollByLastNameStartingWith("", ScrollPosition.keyset());
+		assertThat(first).hasSize(5);
+		assertThat(first.hasNext()).isTrue();
+
+		Window<Owner> second = this.owners.scrollByLastNameStartingWith("", first.positionAt(first.size() - 1));
+		assertThat(second).hasSize(5);
+		assertThat(second.hasNext()).isFalse();
+		assertThat(second.map(Owner::getId)).doesNotContainAnyElementsOf(first.map(Owner::getId));
+		assertThat(second.getContent().get(0).getLastName())
+			.isGreaterThanOrEqualTo(first.getContent().get(4).getLastName());
+		assertThat(second.getContent().get(0).getPets()).isNotNull();
+	}
+
 	@Test
 	void shouldFindSingleOwnerWithPet() {
 		Optional<Owner> optionalOwner = this.owners.findById(1);
@@ -138,6 +183,20 @@ class ClinicServiceTests {
 		assertThat(owner.getLastName()).isEqualTo(newLastName);
 	}
 
+	@Test
+	@Transactional
+	void shouldRejectUpdateOfStaleOwner() {
+		Owner stale = this.owners.findById(1).orElseThrow();
+		this.entityManager.detach(stale);
+		Owner current = this.owners.findById(1).orElseThrow();
+		current.setCity("Monona");
+		this.owners.saveAndFlush(current);
+
+		stale.setCity("Middleton");
+		assertThatExceptionOfType(ObjectOptimisticLockingFailureException.class)
+			.isThrownBy(() -> this.owners.save(stale));
+	}
+
 	@Test
 	void shouldFindAllPetTypes() {
 		Collection<PetType> petTypes = this.owners.findPetTypes();
@@ -148,6 +207,19 @@ class ClinicServiceTests {
 		assertThat(petType4.getName()).isEqualTo("snake");
 	}
 
+	@Test
+	void shouldCachePetTypesInQueryCache() {
+		Statistics statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		this.owners.findPetTypes();
+		statistics.clear();
+
+		Collection<PetType> petTypes = this.owners.findPetTypes();
+
+		assertThat(petTypes).hasSize(6);
+		assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+	}
+
 	@Test
 	@Transactional
 	void shouldInsertPetIntoDatabaseAndGenerateId() {
@@ -197,6 +269,43 @@ class ClinicServiceTests {
 		assertThat(pet7.getName()).isEqualTo(newName);
 	}
 
+	@Test
+	@Transactional
+	void shouldMoveOwnerToOneNewVersionPerPetChange() {
+		Owner owner6 = this.owners.findWithPetsById(6).orElseThrow();
+		int version = owner6.getVersion();
+		this.entityManager.detach(owner6);
+
+		Pet pet = new Pet();
+		pet.setName("bowser");
+		pet.setType(EntityUtils.getById(this.owners.findPetTypes(), PetType.class, 2));
+		pet.setBirthDate(LocalDate.now());
+		owner6.addPet(pet);
+		Owner saved = this.owners.saveWithPets(owner6);
+		assertThat(saved.getVersion()).isEqualTo(version + 1);
+
+		saved.getPet(7).setName("Sammy");
+		saved = this.owners.saveWithPets(saved);
+		assertThat(saved.getVersion()).isEqualTo(version + 2);
+
+		this.entityManager.clear();
+		assertThat(this.owners.findById(6).orElseThrow().getVersion()).isEqualTo(version + 2);
+	}
+
+	@Test
+	@Transactional
+	void shouldRejectPetChangeOfStaleOwner() {
+		Owner stale = this.owners.findWithPetsById(6).orElseThrow();
+		this.entityManager.detach(stale);
+		Owner current = this.owners.findById(6).orElseThrow();
+		current.setCity("Monona");
+		this.owners.saveAndFlush(current);
+
+		stale.getPet(7).setName("Sammy");
+		assertThatExceptionOfType(ObjectOptimisticLockingFailureException.class)
+			.isThrownBy(() -> this.owners.saveWithPets(stale));
+	}
+
 	@Test
 	void shouldFindVets() {
 		Collection<Vet> vets = this.vets.findAll();
@@ -244,4 +353,48 @@ class ClinicServiceTests {
 			.isNotNull();
 	}
 
+	@Test
+	void shouldFindRecentVisitsOfEachPet() {
+		Map<Integer, Slice<Visit>> recent = this.visits.findRecentByOwnerId(6, 1);
+
+		assertThat(recent).containsOnlyKeys(7, 8);
+		assertThat(recent.get(7).getContent()).extracting(Visit::getDescription).containsExactly("spayed");
+		assertThat(recent.get(7).hasNext()).isTrue();
+		assertThat(recent.get(8).getContent()).extracting(Visit::getDescription).containsExactly("neutered");
+	}
+
+	@Test
+	@Transactional
+	void shouldAddVisitForPetOfOwner() {
+		Visit visit = new Visit();
+		visit.setDescription("booked directly");
+
+		int version = this.owners.findById(6).orElseThrow().getVersion();
+		assertThat(this.visits.addVisit(6, 7, visit)).isPresent();
+		assertThat(visit.getId()).isNotNull();
+		this.entityManager.clear();
+		assertThat(this.owners.findById(6).orElseThrow().getVersion()).isEqualTo(version + 1);
+		Slice<Visit> recent = this.visits.findByOwnerIdAndPetId(6, 7, PageRequest.of(0, 1));
+		assertThat(recent.getContent()).extracting(Visit::getDescription).containsExactly("booked directly");
+	}
+
+	@Test
+	@Transactional
+	void shouldNotAddVisitForPetOfOtherOwner() {
+		Visit visit = new Visit();
+		visit.setDescription("wrong owner");
+
+		assertThat(this.visits.addVisit(1, 7, visit)).isEmpty();
+		assertThat(visit.getId()).isNull();
+	}
+
+	@Test
+	void shouldPageVisitsMostRecentFirst() {
+		Slice<Visit> older = this.visits.findByOwnerIdAndPetId(6, 7, PageRequest.of(1, 1));
+
+		assertThat(older.getContent()).extracting(Visit::getDescription).containsExactly("rabies shot");
+		assertThat(older.hasNext()).isFalse();
+		assertThat(this.visits.findByOwnerIdAndPetId(1, 7, PageRequest.of(0, 1))).isEmpty();
+	}
+
 }
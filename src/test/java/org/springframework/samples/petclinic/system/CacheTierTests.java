@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.samples.petclinic.vet.VetRepository;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import javax.cache.CacheManager;
+
+/**
+ * Tests that the caches are created with the policies of the {@code petclinic.cache}
+ * properties, and are measured and cleared individually.
+ */
+@SpringBootTest(properties = { "petclinic.cache.specs[ownerCounts].expire-after-write=5s",
+		"petclinic.cache.specs[extra].maximum-size=7" })
+class CacheTierTests {
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private CacheTierEndpoint endpoint;
+
+	@Autowired
+	private VetRepository vets;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void cachesAreCreatedFromTheirPolicy() {
+		assertThat(policy("ownerCounts").getExpireAfterWrite()).hasValue(Duration.ofSeconds(5).toNanos());
+		assertThat(policy("vets").getMaximumWeight()).hasValue(1000);
+		assertThat(policy("extra").getMaximumSize()).hasValue(7);
+		assertThat(policy("default-update-timestamps-region").getMaximumSize()).isEqualTo(OptionalLong.empty());
+	}
+
+	@Test
+	void cachesAreMeasuredAndClearedIndividually() {
+		this.vets.findFirst5ByOrderByIdAsc(ScrollPosition.offset());
+		this.vets.findFirst5ByOrderByIdAsc(ScrollPosition.offset());
+
+		assertThat(this.endpoint.cache("vets").size()).isEqualTo(1);
+		assertThat(this.endpoint.cache("vets").statistics().hits()).isPositive();
+		assertThat(this.meterRegistry.find("cache.gets").tag("cache", "vets").tag("result", "hit").functionCounter())
+			.isNotNull();
+
+		assertThat(this.endpoint.clearCache("vets")).isTrue();
+		assertThat(this.endpoint.cache("vets").size()).isZero();
+		assertThat(this.endpoint.cache("unknown")).isNull();
+	}
+
+	@SuppressWarnings("unchecked")
+	private CaffeineConfiguration<Object, Object> policy(String cacheName) {
+		return this.cacheManager.getCache(cacheName).getConfiguration(CaffeineConfiguration.class);
+	}
+
+}
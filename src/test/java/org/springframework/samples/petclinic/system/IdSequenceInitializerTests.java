@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Tests that {@link IdSequenceInitializer} moves the id sequence past ids written through
+ * the identity columns, as the <code>identity</code> profile does.
+ */
+@SpringBootTest
+class IdSequenceInitializerTests {
+
+	private static final String NEXT_VALUE = "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES "
+			+ "WHERE SEQUENCE_NAME = 'PETCLINIC_SEQ'";
+
+	@Autowired
+	private IdSequenceInitializer initializer;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private long nextValue() {
+		return this.jdbcTemplate.queryForObject(NEXT_VALUE, Long.class);
+	}
+
+	@Test
+	void shouldAdvanceSequencePastIdsInUse() {
+		this.jdbcTemplate.update("INSERT INTO owners (id, first_name, last_name) VALUES (5000, 'Ida', 'Identity')");
+		try {
+			this.initializer.afterPropertiesSet();
+			assertThat(nextValue()).isGreaterThan(5000);
+		}
+		finally {
+			this.jdbcTemplate.update("DELETE FROM owners WHERE id = 5000");
+		}
+	}
+
+	@Test
+	void shouldNotMoveSequenceBack() {
+		long next = nextValue();
+		this.initializer.afterPropertiesSet();
+		assertThat(nextValue()).isEqualTo(next);
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.invalidation.CacheEvent;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerSearchIndex;
+import org.springframework.samples.petclinic.owner.OwnerSummary;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Tests the read/write split with two H2 databases: the application database as the
+ * primary and a second in-memory database, loaded with the same data, as the replica.
+ * The replica reports its lag from a table that the tests update.
+ */
+@SpringBootTest(properties = { "petclinic.datasource.replicas[0].url=" + ReadReplicaTests.REPLICA_URL,
+		"petclinic.datasource.lag-query=SELECT seconds FROM replica_lag", "petclinic.datasource.max-lag=5s",
+		"petclinic.datasource.lag-check-interval=0s" })
+@DirtiesContext
+class ReadReplicaTests {
+
+	static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private OwnerSearchIndex searchIndex;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@BeforeAll
+	static void createReplica() throws SQLException {
+		try (Connection connection = DriverManager.getConnection(REPLICA_URL);
+				Statement statement = connection.createStatement()) {
+			statement.execute("RUNSCRIPT FROM 'classpath:db/h2/schema.sql'");
+			statement.execute("RUNSCRIPT FROM 'classpath:db/h2/data.sql'");
+			statement.execute("DROP TABLE IF EXISTS replica_lag");
+			statement.execute("CREATE TABLE replica_lag (seconds INT)");
+			statement.execute("INSERT INTO replica_lag VALUES (0)");
+		}
+	}
+
+	@Test
+	void shouldReadFromReplicaOnlyInReadOnlyTransactions() throws SQLException {
+		// a write the replica has not seen
+		this.jdbcTemplate.update("UPDATE owners SET first_name = 'Primary' WHERE id = 1");
+
+		assertThat(firstNameOfOwner1(true)).isEqualTo("George");
+		assertThat(firstNameOfOwner1(false)).isEqualTo("Primary");
+
+		setReplicaLag(60);
+		try {
+			assertThat(firstNameOfOwner1(true)).isEqualTo("Primary");
+		}
+		finally {
+			setReplicaLag(0);
+		}
+		assertThat(firstNameOfOwner1(true)).isEqualTo("George");
+	}
+
+	@Test
+	void shouldReindexOwnerChangedByAnotherInstanceFromPrimary() {
+		// committed by another instance, the replica is within its lag and has not seen it
+		this.jdbcTemplate.update("UPDATE owners SET last_name = 'Lagging' WHERE id = 2");
+
+		this.searchIndex.ownerChanged(new CacheEvent("ownerSearchIndex", "2"));
+
+		assertThat(this.searchIndex.search(new OwnerSearchIndex.Query(null, "Lagging", null, null), 10))
+			.extracting(OwnerSummary::getId)
+			.containsExactly(2);
+	}
+
+	private String firstNameOfOwner1(boolean readOnly) {
+		TransactionTemplate transaction = new TransactionTemplate(this.transactionManager);
+		transaction.setReadOnly(readOnly);
+		return transaction.execute(status -> this.owners.findById(1).orElseThrow().getFirstName());
+	}
+
+	private static void setReplicaLag(int seconds) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(REPLICA_URL);
+				Statement statement = connection.createStatement()) {
+			statement.execute("UPDATE replica_lag SET seconds = " + seconds);
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Tests of the links to the static resources and how they are served.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class StaticResourcesTests {
+
+	private static final Pattern STYLESHEET = Pattern.compile("/resources/css/petclinic-[0-9a-f]{32}\\.css");
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void shouldLinkStylesheetByContentHash() throws Exception {
+		this.mockMvc.perform(get(stylesheet()))
+			.andExpect(status().isOk())
+			.andExpect(header().string("Cache-Control", "max-age=31536000, public"));
+	}
+
+	@Test
+	void shouldServePrecompressedStylesheet() throws Exception {
+		this.mockMvc.perform(get(stylesheet()).header("Accept-Encoding", "gzip"))
+			.andExpect(status().isOk())
+			.andExpect(header().string("Content-Encoding", "gzip"))
+			.andExpect(header().string("Vary", "Accept-Encoding"));
+	}
+
+	@Test
+	void shouldInlineCriticalStylesWithVersionedLinks() throws Exception {
+		String html = this.mockMvc.perform(get("/")).andReturn().getResponse().getContentAsString();
+		assertThat(html).containsPattern("url\\(\"/resources/images/spring-logo-dataflow-[0-9a-f]{32}\\.png\"\\)")
+			.containsPattern("<link rel=\"preload\" as=\"style\" href=\"" + STYLESHEET.pattern())
+			.doesNotContain("url(\"../")
+			.doesNotContain("sourceMappingURL");
+	}
+
+	@Test
+	void shouldInlineOnlyStylesMissingFromStylesheet() throws Exception {
+		String html = this.mockMvc.perform(get("/")).andReturn().getResponse().getContentAsString();
+		String critical = html.substring(html.indexOf("<style>"), html.indexOf("</style>"));
+		assertThat(critical).contains(":root").contains(".navbar-expand-lg").hasSizeLessThan(32 * 1024);
+		String stylesheet = this.mockMvc.perform(get(stylesheet())).andReturn().getResponse().getContentAsString();
+		assertThat(stylesheet).contains(".table")
+			.doesNotContain(":root")
+			.doesNotContain(".navbar")
+			.doesNotContain("@font-face");
+	}
+
+	private String stylesheet() throws Exception {
+		String html = this.mockMvc.perform(get("/")).andReturn().getResponse().getContentAsString();
+		Matcher link = STYLESHEET.matcher(html);
+		assertThat(link.find()).as("versioned stylesheet link").isTrue();
+		return link.group();
+	}
+
+}
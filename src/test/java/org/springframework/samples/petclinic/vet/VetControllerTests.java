@@ -16,6 +16,12 @@
 
 package org.springframework.samples.petclinic.vet;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
 import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,16 +29,23 @@ import org.junit.jupiter.api.condition.DisabledInNativeImage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.Pageable;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -40,7 +53,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * Test class for the {@link VetController}
  */
 
-@WebMvcTest(VetController.class)
+@WebMvcTest(value = VetController.class,
+		includeFilters = @ComponentScan.Filter(value = { VetDirectory.class, VetStreamWriter.class, VetResponseCache.class },
+				type = FilterType.ASSIGNABLE_TYPE))
 @DisabledInNativeImage
 @DisabledInAotMode
 class VetControllerTests {
@@ -74,8 +89,8 @@ class VetControllerTests {
 	@BeforeEach
 	void setup() {
 		given(this.vets.findAll()).willReturn(Lists.newArrayList(james(), helen()));
-		given(this.vets.findAll(any(Pageable.class)))
-			.willReturn(new PageImpl<Vet>(Lists.newArrayList(james(), helen())));
+		given(this.vets.findFirst5ByOrderByIdAsc(any(ScrollPosition.class)))
+			.willReturn(Window.from(Lists.newArrayList(james(), helen()), ScrollPosition::offset));
 
 	}
 
@@ -89,6 +104,20 @@ class VetControllerTests {
 
 	}
 
+	@Test
+	void testShowVetListHtmlNextBeyondEstimatedTotal() throws Exception {
+		// the last page counted towards the estimate, with more vets after it
+		given(this.vets.countUpTo(1001)).willReturn(1001L);
+		given(this.vets.findFirst5ByOrderByIdAsc(ScrollPosition.offset(999)))
+			.willReturn(Window.from(Lists.newArrayList(james(), helen(), james(), helen(), james()),
+					ScrollPosition::offset, true));
+		mockMvc.perform(get("/vets.html").param("page", "201"))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("estimatedTotal", true))
+			.andExpect(model().attribute("hasNext", true));
+		mockMvc.perform(get("/vets.html").param("page", "1")).andExpect(model().attribute("hasNext", false));
+	}
+
 	@Test
 	void testShowResourcesVetList() throws Exception {
 		ResultActions actions = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
@@ -97,4 +126,144 @@ class VetControllerTests {
 			.andExpect(jsonPath("$.vetList[0].id").value(1));
 	}
 
+	@Test
+	void testShowVetListHtmlFilteredBySpecialty() throws Exception {
+		mockMvc.perform(get("/vets.html").param("specialty", "Radiology"))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("listVets", hasSize(1)))
+			.andExpect(model().attribute("filterParams", "&specialty=Radiology&match=ALL"))
+			.andExpect(view().name("vets/vetList"));
+	}
+
+	@Test
+	void testShowResourcesVetListFilteredBySpecialty() throws Exception {
+		mockMvc.perform(get("/vets").param("specialty", "radiology", "surgery").param("match", "ANY")
+				.accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.vetList.length()").value(1))
+			.andExpect(jsonPath("$.vetList[0].id").value(2));
+		mockMvc.perform(get("/vets").param("specialty", "radiology", "surgery").accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.vetList.length()").value(0));
+	}
+
+	@Test
+	void testShowVetListHtmlNotModified() throws Exception {
+		String eTag = mockMvc.perform(get("/vets.html"))
+			.andExpect(status().isOk())
+			.andReturn()
+			.getResponse()
+			.getHeader("ETag");
+		assertThat(eTag).startsWith("W/\"vets-");
+		mockMvc.perform(get("/vets.html").header("If-None-Match", eTag)).andExpect(status().isNotModified());
+		given(this.vets.findAll()).willReturn(Lists.newArrayList(james()));
+		mockMvc.perform(get("/vets.html").header("If-None-Match", eTag)).andExpect(status().isOk());
+	}
+
+	@Test
+	void testShowResourcesVetListTaggedPerRepresentation() throws Exception {
+		String json = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+			.andExpect(header().string("Vary", "Accept, Accept-Encoding"))
+			.andReturn()
+			.getResponse()
+			.getHeader("ETag");
+		String xml = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_XML))
+			.andReturn()
+			.getResponse()
+			.getHeader("ETag");
+		String gzip = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON).header("Accept-Encoding", "gzip"))
+			.andReturn()
+			.getResponse()
+			.getHeader("ETag");
+		assertThat(json).isNotEqualTo(xml).isNotEqualTo(gzip);
+		mockMvc.perform(get("/vets").accept(MediaType.ALL).header("If-None-Match", json))
+			.andExpect(status().isNotModified());
+	}
+
+	@Test
+	void testShowResourcesVetListAsXml() throws Exception {
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_XML))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(MediaType.APPLICATION_XML))
+			.andExpect(xpath("/vets/vetList[2]/id").string("2"));
+	}
+
+	@Test
+	void testShowResourcesVetListCompressed() throws Exception {
+		byte[] body = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON).header("Accept-Encoding", "gzip"))
+			.andExpect(status().isOk())
+			.andExpect(header().string("Content-Encoding", "gzip"))
+			.andReturn()
+			.getResponse()
+			.getContentAsByteArray();
+		try (InputStream json = new GZIPInputStream(new ByteArrayInputStream(body))) {
+			assertThat(new String(json.readAllBytes(), StandardCharsets.UTF_8)).contains("\"lastName\":\"Leary\"");
+		}
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON).header("Accept-Encoding", "gzip;q=0"))
+			.andExpect(header().doesNotExist("Content-Encoding"));
+	}
+
+	@Test
+	void testShowResourcesVetListRenderedAgainWhenVetsChange() throws Exception {
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+			.andExpect(jsonPath("$.vetList.length()").value(2));
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+			.andExpect(jsonPath("$.vetList.length()").value(2));
+		given(this.vets.findAll()).willReturn(Lists.newArrayList(james()));
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+			.andExpect(jsonPath("$.vetList.length()").value(1));
+	}
+
+	@Test
+	void testShowResourcesVetListNotAcceptable() throws Exception {
+		mockMvc.perform(get("/vets").accept(MediaType.IMAGE_PNG)).andExpect(status().isNotAcceptable());
+	}
+
+	@Test
+	void testStreamVetListAsNdjson() throws Exception {
+		given(this.vets.streamRows()).willReturn(Stream.of(new VetRow(1, "James", "Carter", null, null),
+				new VetRow(2, "Helen", "Leary", 1, "radiology"), new VetRow(2, "Helen", "Leary", 2, "surgery")));
+		MvcResult result = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_NDJSON))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		String[] lines = mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+			.andReturn()
+			.getResponse()
+			.getContentAsString()
+			.split("\n");
+		assertThat(lines).hasSize(2);
+		assertThat(lines[0]).contains("\"id\":1").contains("\"specialties\":[]");
+		assertThat(lines[1]).contains("\"id\":2").contains("radiology").contains("surgery");
+	}
+
+	@Test
+	void testStreamVetListFilteredBySpecialty() throws Exception {
+		MvcResult result = mockMvc
+			.perform(get("/vets").param("specialty", "radiology").accept(MediaType.APPLICATION_NDJSON))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		String[] lines = mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().isOk())
+			.andReturn()
+			.getResponse()
+			.getContentAsString()
+			.split("\n");
+		assertThat(lines).hasSize(1);
+		assertThat(lines[0]).contains("\"id\":2").contains("radiology");
+	}
+
+	@Test
+	void testStreamVetListAsJsonSequence() throws Exception {
+		given(this.vets.streamRows()).willReturn(Stream.of(new VetRow(1, "James", "Carter", null, null)));
+		MvcResult result = mockMvc.perform(get("/vets").accept(VetStreamWriter.APPLICATION_JSON_SEQ))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(VetStreamWriter.APPLICATION_JSON_SEQ))
+			.andExpect(content().string(startsWith("\u001E{\"id\":1")));
+	}
+
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.vet.VetDirectory.Match;
+
+/**
+ * Test class for {@link VetDirectory}
+ */
+class VetDirectoryTests {
+
+	private final VetRepository vets = mock(VetRepository.class);
+
+	private final VetDirectory directory = new VetDirectory(this.vets);
+
+	private Specialty radiology;
+
+	private Specialty surgery;
+
+	private Specialty dentistry;
+
+	@BeforeEach
+	void setup() {
+		this.radiology = specialty(1, "radiology");
+		this.surgery = specialty(2, "surgery");
+		this.dentistry = specialty(3, "dentistry");
+		given(this.vets.findAll()).willReturn(List.of(vet(1), vet(2, this.radiology),
+				vet(3, this.surgery, this.dentistry), vet(4, this.surgery)));
+	}
+
+	private static Specialty specialty(int id, String name) {
+		Specialty specialty = new Specialty();
+		specialty.setId(id);
+		specialty.setName(name);
+		return specialty;
+	}
+
+	private static Vet vet(int id, Specialty... specialties) {
+		Vet vet = new Vet();
+		vet.setId(id);
+		for (Specialty specialty : specialties) {
+			vet.addSpecialty(specialty);
+		}
+		return vet;
+	}
+
+	private List<Integer> ids(Match match, String... specialties) {
+		return this.directory.findBySpecialties(List.of(specialties), match).stream().map(Vet::getId).toList();
+	}
+
+	@Test
+	void shouldListSpecialtiesByName() {
+		assertThat(this.directory.getSpecialties()).extracting(Specialty::getName)
+			.containsExactly("dentistry", "radiology", "surgery");
+	}
+
+	@Test
+	void shouldFindVetsWithAllSpecialties() {
+		assertThat(ids(Match.ALL, "surgery")).containsExactly(3, 4);
+		assertThat(ids(Match.ALL, "Surgery", "dentistry")).containsExactly(3);
+		assertThat(ids(Match.ALL, "surgery", "unknown")).isEmpty();
+	}
+
+	@Test
+	void shouldFindVetsWithAnySpecialty() {
+		assertThat(ids(Match.ANY, "radiology", "dentistry")).containsExactly(2, 3);
+		assertThat(ids(Match.ANY, "unknown")).isEmpty();
+	}
+
+	@Test
+	void shouldRebuildWhenVetsChange() {
+		assertThat(ids(Match.ANY, "radiology")).containsExactly(2);
+		given(this.vets.findAll()).willReturn(List.of(vet(2), vet(5, this.radiology)));
+		assertThat(ids(Match.ANY, "radiology")).containsExactly(5);
+	}
+
+	@Test
+	void shouldSpanSeveralWordsOfSpecialties() {
+		List<Specialty> many = IntStream.rangeClosed(1, 130).mapToObj(id -> specialty(id, "s" + id)).toList();
+		List<Vet> all = new ArrayList<>();
+		all.add(vet(1, many.get(0), many.get(129)));
+		all.add(vet(2, many.get(70)));
+		all.add(vet(3, many.toArray(Specialty[]::new)));
+		given(this.vets.findAll()).willReturn(all);
+		assertThat(ids(Match.ALL, "s1", "s130")).containsExactly(1, 3);
+		assertThat(ids(Match.ALL, "s1", "s71")).containsExactly(3);
+		assertThat(ids(Match.ANY, "s71", "s130")).containsExactly(1, 2, 3);
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.vet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.support.MutableSortDefinition;
+import org.springframework.beans.support.PropertyComparator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures the serialization of 10k vets to JSON, as for <code>/vets</code>, with the
+ * specialties sorted once and kept by {@link Vet} and with the former reflective sort on
+ * every call to {@link Vet#getSpecialties()}.
+ * <p>
+ * Run with <code>./mvnw test-compile exec:java
+ * -Dexec.mainClass=org.springframework.samples.petclinic.vet.VetSerializationBenchmark
+ * -Dexec.classpathScope=test</code>, or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class VetSerializationBenchmark {
+
+	private static final int VETS = 10_000;
+
+	private static final String[] SPECIALTIES = { "radiology", "surgery", "dentistry", "cardiology", "dermatology" };
+
+	@Param({ "cached", "reflective" })
+	public String sorting;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private Vets vets;
+
+	@Setup
+	public void createVets() {
+		List<Specialty> specialties = new ArrayList<>();
+		for (int id = 0; id < SPECIALTIES.length; id++) {
+			Specialty specialty = new Specialty();
+			specialty.setId(id + 1);
+			specialty.setName(SPECIALTIES[id]);
+			specialties.add(specialty);
+		}
+		this.vets = new Vets();
+		for (int id = 1; id <= VETS; id++) {
+			Vet vet = "reflective".equals(this.sorting) ? new ReflectivelySortedVet() : new Vet();
+			vet.setId(id);
+			vet.setFirstName("Vet");
+			vet.setLastName("Number " + id);
+			for (int i = 0; i < 1 + id % 3; i++) {
+				vet.addSpecialty(specialties.get((id + i) % specialties.size()));
+			}
+			this.vets.getVetList().add(vet);
+		}
+	}
+
+	@Benchmark
+	public String serialize() throws JsonProcessingException {
+		return this.mapper.writeValueAsString(this.vets);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(VetSerializationBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	/**
+	 * A vet sorting its specialties on every call, as it did before the sorted list was
+	 * kept.
+	 */
+	static class ReflectivelySortedVet extends Vet {
+
+		@Override
+		public List<Specialty> getSpecialties() {
+			List<Specialty> sortedSpecs = new ArrayList<>(getSpecialtiesInternal());
+			PropertyComparator.sort(sortedSpecs, new MutableSortDefinition("name", true, true));
+			return Collections.unmodifiableList(sortedSpecs);
+		}
+
+	}
+
+}